@@ -0,0 +1,80 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import com.kumuluz.ee.configuration.utils.ConfigurationImpl;
+import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
+import com.kumuluz.ee.fault.tolerance.config.IsEnabledConfig;
+import org.jboss.weld.environment.se.Weld;
+import org.jboss.weld.environment.se.WeldContainer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.logging.Logger;
+
+/**
+ * Weld SE container with fault tolerance enabled, shared by all threads of a benchmark.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+public class BenchmarkContainer {
+
+    /**
+     * JVM arguments required by Weld to define proxy classes on Java 16 and newer.
+     */
+    public static final String JVM_ARGS = "--add-opens=java.base/java.lang=ALL-UNNAMED";
+
+    // failed attempts are logged on every invocation, which would dominate retry and fallback benchmarks
+    private static final Logger faultToleranceLogger = Logger.getLogger("com.kumuluz.ee.fault.tolerance");
+
+    private WeldContainer container;
+
+    @Setup(Level.Trial)
+    public void start() {
+
+        // default Hystrix semaphores allow only 10 concurrent requests, which would reject contended benchmarks
+        System.setProperty("hystrix.command.default.execution.isolation.semaphore.maxConcurrentRequests",
+                "100000");
+        System.setProperty("hystrix.command.default.fallback.isolation.semaphore.maxConcurrentRequests",
+                "100000");
+
+        faultToleranceLogger.setLevel(java.util.logging.Level.SEVERE);
+
+        ConfigurationUtil.initialize(new ConfigurationImpl());
+        IsEnabledConfig.setEnabled(true);
+
+        container = new Weld().initialize();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        container.shutdown();
+    }
+
+    public <T> T select(Class<T> type) {
+        return container.select(type).get();
+    }
+}
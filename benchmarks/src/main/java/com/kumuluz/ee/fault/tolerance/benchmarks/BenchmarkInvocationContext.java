@@ -0,0 +1,97 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Invocation context of a method invocation for benchmarking fault tolerance internals outside of an interceptor
+ * chain.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class BenchmarkInvocationContext implements InvocationContext {
+
+    private final Object target;
+    private final Method method;
+    private final Map<String, Object> contextData;
+
+    private Object[] parameters;
+
+    public BenchmarkInvocationContext(Object target, Method method, Object... parameters) {
+        this.target = target;
+        this.method = method;
+        this.parameters = parameters;
+        this.contextData = new HashMap<>();
+    }
+
+    /**
+     * Clears the context data, so the context can be reused for the next invocation.
+     */
+    public void reset() {
+        contextData.clear();
+    }
+
+    @Override
+    public Object getTarget() {
+        return target;
+    }
+
+    @Override
+    public Object getTimer() {
+        return null;
+    }
+
+    @Override
+    public Method getMethod() {
+        return method;
+    }
+
+    @Override
+    public Constructor<?> getConstructor() {
+        return null;
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public void setParameters(Object[] parameters) {
+        this.parameters = parameters;
+    }
+
+    @Override
+    public Map<String, Object> getContextData() {
+        return contextData;
+    }
+
+    @Override
+    public Object proceed() throws Exception {
+        return method.invoke(target, parameters);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import com.kumuluz.ee.fault.tolerance.annotations.CacheResult;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+import org.eclipse.microprofile.faulttolerance.Fallback;
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.eclipse.microprofile.faulttolerance.Timeout;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bean with fault tolerance annotated methods used by the benchmarks.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@ApplicationScoped
+public class BenchmarkService {
+
+    // preallocated so benchmarks measure fault tolerance and not stack trace filling
+    private static final IllegalStateException FAILURE = new IllegalStateException("Benchmark failure.");
+
+    // high enough that the contended benchmarks are never rejected
+    private static final int BULKHEAD_LIMIT = 100000;
+
+    /**
+     * Fails every odd attempt, so each call is retried exactly once.
+     */
+    @Retry(maxRetries = 1, delay = 0, jitter = 0)
+    public int retryZeroDelay(AtomicInteger attempts) {
+
+        if (attempts.incrementAndGet() % 2 == 1) {
+            throw FAILURE;
+        }
+
+        return attempts.get();
+    }
+
+    @Fallback(fallbackMethod = "fallback")
+    public String fallbackMethod() {
+        throw FAILURE;
+    }
+
+    public String fallback() {
+        return "fallback";
+    }
+
+    @Fallback(BenchmarkFallbackHandler.class)
+    public String fallbackHandler() {
+        throw FAILURE;
+    }
+
+    @Fallback(BenchmarkApplicationScopedFallbackHandler.class)
+    public String applicationScopedFallbackHandler() {
+        throw FAILURE;
+    }
+
+    @Bulkhead(BULKHEAD_LIMIT)
+    public String hystrixBulkhead() {
+        return "bulkhead";
+    }
+
+    /**
+     * Selected as SEMAPHORE bulkhead in config.yml.
+     */
+    @Bulkhead(BULKHEAD_LIMIT)
+    public String semaphoreBulkhead() {
+        return "bulkhead";
+    }
+
+    @Timeout(1000)
+    public String timeout() {
+        return "timeout";
+    }
+
+    /**
+     * Called with the same parameter, so every call after the first returns the cached result.
+     */
+    @CacheResult
+    public String cacheResult(String key) {
+        return key;
+    }
+
+    public String plain() {
+        return "plain";
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import com.kumuluz.ee.fault.tolerance.commands.SuccessThresholdCircuitBreaker;
+import com.kumuluz.ee.fault.tolerance.enums.CircuitBreakerType;
+import com.kumuluz.ee.fault.tolerance.metrics.CircuitBreakerMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.netflix.hystrix.*;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+import io.smallrye.metrics.MetricsRegistryImpl;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the attempt and mark paths of the custom circuit breaker implementations in the closed state.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CircuitBreakerBenchmark {
+
+    @Param({"SUCCESS_THRESHOLD", "COUNT_SLIDING_WINDOW", "TIME_SLIDING_WINDOW"})
+    private CircuitBreakerType type;
+
+    private HystrixCircuitBreaker circuitBreaker;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        HystrixCommandKey commandKey = HystrixCommandKey.Factory.asKey("circuit-breaker-benchmark-" + type);
+        HystrixCommandGroupKey groupKey = HystrixCommandGroupKey.Factory.asKey("benchmarks");
+
+        // error threshold is never reached, so the circuit breaker stays closed regardless of failures
+        HystrixCommandProperties properties = HystrixPropertiesFactory.getCommandProperties(commandKey,
+                HystrixCommandProperties.Setter()
+                        .withCircuitBreakerRequestVolumeThreshold(1000)
+                        .withCircuitBreakerErrorThresholdPercentage(101));
+
+        ExecutionMetadata metadata = new ExecutionMetadata(CircuitBreakerBenchmark.class,
+                CircuitBreakerBenchmark.class.getMethod("markSuccess"), commandKey.name(), groupKey.name());
+        metadata.setCircuitBreakerType(type);
+        metadata.setCircuitBreakerSuccessThreshold(1);
+
+        CircuitBreakerMetricsCollection metricsCollection =
+                new CircuitBreakerMetricsCollection(new MetricsRegistryImpl());
+        metricsCollection.setMetricsPrefix("ft.benchmarks.circuitBreaker.");
+        metricsCollection.initialize();
+
+        circuitBreaker = SuccessThresholdCircuitBreaker.CustomCbFactory.getInstance(commandKey, groupKey,
+                properties, HystrixCommandMetrics.getInstance(commandKey, groupKey, null, properties), metadata,
+                metricsCollection);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean markSuccess() {
+        return success();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public boolean markSuccessContended() {
+        return success();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean markNonSuccess() {
+        return failure();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public boolean markNonSuccessContended() {
+        return failure();
+    }
+
+    private boolean success() {
+        boolean attempted = circuitBreaker.attemptExecution();
+        circuitBreaker.markSuccess();
+
+        return attempted;
+    }
+
+    private boolean failure() {
+        boolean attempted = circuitBreaker.attemptExecution();
+        circuitBreaker.markNonSuccess();
+
+        return attempted;
+    }
+}
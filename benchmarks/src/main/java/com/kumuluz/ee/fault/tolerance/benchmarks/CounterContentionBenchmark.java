@@ -0,0 +1,94 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares a single {@link AtomicLong} with a striped {@link LongAdder} for the per-invocation gauge updates
+ * (increment on start, decrement on end) performed by the bulkhead metrics and the circuit breakers.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CounterContentionBenchmark {
+
+    private static final int HIGHLY_CONTENDED_THREADS = 64;
+
+    private final AtomicLong atomicLong = new AtomicLong();
+    private final LongAdder longAdder = new LongAdder();
+
+    @Benchmark
+    @Threads(1)
+    public void atomicLong() {
+        updateAtomicLong();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public void atomicLongContended() {
+        updateAtomicLong();
+    }
+
+    @Benchmark
+    @Threads(HIGHLY_CONTENDED_THREADS)
+    public void atomicLongHighlyContended() {
+        updateAtomicLong();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void longAdder() {
+        updateLongAdder();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public void longAdderContended() {
+        updateLongAdder();
+    }
+
+    @Benchmark
+    @Threads(HIGHLY_CONTENDED_THREADS)
+    public void longAdderHighlyContended() {
+        updateLongAdder();
+    }
+
+    private void updateAtomicLong() {
+        atomicLong.incrementAndGet();
+        atomicLong.decrementAndGet();
+    }
+
+    private void updateLongAdder() {
+        longAdder.increment();
+        longAdder.decrement();
+    }
+}
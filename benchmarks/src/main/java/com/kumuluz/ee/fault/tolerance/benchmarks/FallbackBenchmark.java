@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks intercepted invocations which fail and are handled by a fallback method or a fallback handler
+ * (dependent or application scoped).
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = BenchmarkContainer.JVM_ARGS)
+public class FallbackBenchmark {
+
+    private BenchmarkService service;
+
+    @Setup
+    public void setup(BenchmarkContainer container) {
+        service = container.select(BenchmarkService.class);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String fallbackMethod() {
+        return service.fallbackMethod();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public String fallbackMethodContended() {
+        return service.fallbackMethod();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String fallbackHandler() {
+        return service.fallbackHandler();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public String fallbackHandlerContended() {
+        return service.fallbackHandler();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String applicationScopedFallbackHandler() {
+        return service.applicationScopedFallbackHandler();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public String applicationScopedFallbackHandlerContended() {
+        return service.applicationScopedFallbackHandler();
+    }
+}
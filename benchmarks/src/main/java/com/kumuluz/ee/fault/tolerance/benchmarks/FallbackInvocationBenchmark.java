@@ -0,0 +1,86 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares reflective invocation of a fallback method (previous implementation) with invocation of the method handle
+ * the fallback method is bound to during initialization.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FallbackInvocationBenchmark {
+
+    private static final Object[] NO_PARAMETERS = new Object[0];
+
+    private BenchmarkService target;
+    private Method fallbackMethod;
+    private MethodHandle fallbackMethodHandle;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        target = new BenchmarkService();
+        fallbackMethod = BenchmarkService.class.getMethod("fallback");
+
+        // same binding as in FaultToleranceUtilImpl
+        fallbackMethodHandle = MethodHandles.lookup().unreflect(fallbackMethod)
+                .asSpreader(Object[].class, fallbackMethod.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object reflection() throws ReflectiveOperationException {
+        return fallbackMethod.invoke(target, NO_PARAMETERS);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public Object reflectionContended() throws ReflectiveOperationException {
+        return fallbackMethod.invoke(target, NO_PARAMETERS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object methodHandle() throws Throwable {
+        return (Object) fallbackMethodHandle.invokeExact((Object) target, NO_PARAMETERS);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public Object methodHandleContended() throws Throwable {
+        return (Object) fallbackMethodHandle.invokeExact((Object) target, NO_PARAMETERS);
+    }
+}
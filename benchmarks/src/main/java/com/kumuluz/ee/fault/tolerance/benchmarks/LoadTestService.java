@@ -0,0 +1,54 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import org.eclipse.microprofile.faulttolerance.Asynchronous;
+import org.eclipse.microprofile.faulttolerance.Bulkhead;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Bean with blocking asynchronous methods used by the load tests.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@ApplicationScoped
+public class LoadTestService {
+
+    public static final int BULKHEAD_LIMIT = 10000;
+
+    /**
+     * Blocks the executing thread, like a call of a remote service would.
+     *
+     * @return Name of the executing thread
+     */
+    @Asynchronous
+    @Bulkhead(value = BULKHEAD_LIMIT, waitingTaskQueue = BULKHEAD_LIMIT)
+    public CompletionStage<String> blockingCall(long durationInMillis) throws InterruptedException {
+
+        Thread.sleep(durationInMillis);
+
+        return CompletableFuture.completedFuture(Thread.currentThread().toString());
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import com.kumuluz.ee.fault.tolerance.metrics.BulkheadMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.enums.HistogramType;
+import com.kumuluz.ee.fault.tolerance.metrics.CommonMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.HistogramFactory;
+import com.kumuluz.ee.fault.tolerance.metrics.TimeoutMetricsCollection;
+import io.smallrye.metrics.MetricsRegistryImpl;
+import org.eclipse.microprofile.metrics.MetricRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the metric updates performed by the executor on every invocation. Duration histograms are benchmarked
+ * with the default histograms of the registry and with HDR histograms (suffixed with <code>Hdr</code>).
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+
+    private static final String METRICS_PREFIX = "ft.benchmarks.metrics.";
+    private static final String HDR_METRICS_PREFIX = "ft.benchmarks.metrics.hdr.";
+
+    private CommonMetricsCollection commonMetricsCollection;
+    private BulkheadMetricsCollection bulkheadMetricsCollection;
+    private TimeoutMetricsCollection timeoutMetricsCollection;
+    private BulkheadMetricsCollection hdrBulkheadMetricsCollection;
+    private TimeoutMetricsCollection hdrTimeoutMetricsCollection;
+
+    @Setup
+    public void setup() {
+        MetricRegistry registry = new MetricsRegistryImpl();
+
+        commonMetricsCollection = new CommonMetricsCollection(registry);
+        commonMetricsCollection.setMetricsPrefix(METRICS_PREFIX);
+        commonMetricsCollection.initialize();
+
+        bulkheadMetricsCollection = new BulkheadMetricsCollection(registry, HistogramFactory.DEFAULT, true);
+        bulkheadMetricsCollection.setMetricsPrefix(METRICS_PREFIX);
+        bulkheadMetricsCollection.initialize();
+
+        timeoutMetricsCollection = new TimeoutMetricsCollection(registry, HistogramFactory.DEFAULT);
+        timeoutMetricsCollection.setMetricsPrefix(METRICS_PREFIX);
+        timeoutMetricsCollection.initialize();
+
+        HistogramFactory hdrHistogramFactory = new HistogramFactory(HistogramType.HDR, 2,
+                TimeUnit.MINUTES.toNanos(60), TimeUnit.SECONDS.toNanos(60));
+
+        hdrBulkheadMetricsCollection = new BulkheadMetricsCollection(registry, hdrHistogramFactory, true);
+        hdrBulkheadMetricsCollection.setMetricsPrefix(HDR_METRICS_PREFIX);
+        hdrBulkheadMetricsCollection.initialize();
+
+        hdrTimeoutMetricsCollection = new TimeoutMetricsCollection(registry, hdrHistogramFactory);
+        hdrTimeoutMetricsCollection.setMetricsPrefix(HDR_METRICS_PREFIX);
+        hdrTimeoutMetricsCollection.initialize();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void invocations() {
+        invocationsUpdate();
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public void invocationsContended() {
+        invocationsUpdate();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void bulkhead() {
+        bulkheadUpdate(bulkheadMetricsCollection);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public void bulkheadContended() {
+        bulkheadUpdate(bulkheadMetricsCollection);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void timeout() {
+        timeoutUpdate(timeoutMetricsCollection);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public void timeoutContended() {
+        timeoutUpdate(timeoutMetricsCollection);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void bulkheadHdr() {
+        bulkheadUpdate(hdrBulkheadMetricsCollection);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public void bulkheadHdrContended() {
+        bulkheadUpdate(hdrBulkheadMetricsCollection);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void timeoutHdr() {
+        timeoutUpdate(hdrTimeoutMetricsCollection);
+    }
+
+    @Benchmark
+    @Threads(BenchmarkRunner.CONTENDED_THREADS)
+    public void timeoutHdrContended() {
+        timeoutUpdate(hdrTimeoutMetricsCollection);
+    }
+
+    private void invocationsUpdate() {
+        commonMetricsCollection.getTotalInvocations().inc();
+    }
+
+    private void bulkheadUpdate(BulkheadMetricsCollection collection) {
+        collection.getCurrentlyWaiting().increment();
+        collection.getCallsAccepted().inc();
+        collection.getCurrentlyExecuting().increment();
+        collection.getCurrentlyWaiting().decrement();
+        collection.getWaitingDuration().update(1000L);
+
+        collection.getCurrentlyExecuting().decrement();
+        collection.getExecutionDuration().update(10000L);
+    }
+
+    private void timeoutUpdate(TimeoutMetricsCollection collection) {
+        collection.getExecutionDuration().update(10000L);
+        collection.getCallsNotTimedOut().inc();
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.benchmarks;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Load test executing concurrent blocking asynchronous calls. With the virtual threads module (built with the
+ * <code>virtual-threads</code> profile on Java 21 or newer) all calls block at the same time on a few carrier threads,
+ * so the test completes in about the duration of a single call.
+ *
+ * Arguments: number of calls (default 10000) and duration of a call in milliseconds (default 1000). The number of
+ * carrier threads can be set with the <code>jdk.virtualThreadScheduler.parallelism</code> system property.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class VirtualThreadLoadTest {
+
+    public static void main(String[] args) throws Exception {
+
+        int calls = (args.length > 0) ? Integer.parseInt(args[0]) : LoadTestService.BULKHEAD_LIMIT;
+        long durationInMillis = (args.length > 1) ? Long.parseLong(args[1]) : 1000;
+
+        BenchmarkContainer container = new BenchmarkContainer();
+        container.start();
+
+        try {
+            LoadTestService service = container.select(LoadTestService.class);
+
+            String thread = service.blockingCall(0).toCompletableFuture().get();
+
+            if (!thread.startsWith("VirtualThread")) {
+                System.err.println("Calls are not executed on virtual threads (executed on " + thread + "). " +
+                        "Build the benchmarks with the virtual-threads profile on Java 21 or newer.");
+                System.exit(1);
+            }
+
+            List<CompletableFuture<String>> results = new ArrayList<>(calls);
+            long start = System.nanoTime();
+
+            for (int i = 0; i < calls; i++) {
+                results.add(service.blockingCall(durationInMillis).toCompletableFuture());
+            }
+
+            Set<String> carrierThreads = new HashSet<>();
+
+            for (CompletableFuture<String> result : results) {
+                // virtual threads are printed as VirtualThread[#id]/runnable@<carrier thread name>
+                String name = result.get();
+                carrierThreads.add(name.substring(name.indexOf('@') + 1));
+            }
+
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            System.out.println("Completed " + calls + " concurrent calls blocking for " + durationInMillis +
+                    " ms in " + elapsed + " ms.");
+            System.out.println("Carrier threads: " + carrierThreads.size() + ", peak platform threads: " +
+                    ManagementFactory.getThreadMXBean().getPeakThreadCount() + ".");
+        } finally {
+            container.stop();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.annotations;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.time.temporal.ChronoUnit;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotation enabling caching of method results. Successful results are cached by method parameters and returned
+ * without executing the method or any other fault tolerance pattern until they expire.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface CacheResult {
+
+    /**
+     * Time after which the cached result expires
+     */
+    @Nonbinding long ttl() default 60;
+
+    /**
+     * Unit of the ttl
+     */
+    @Nonbinding ChronoUnit ttlUnit() default ChronoUnit.SECONDS;
+
+    /**
+     * Maximum number of cached results
+     */
+    @Nonbinding int maxSize() default 1000;
+
+    /**
+     * Time after which a cached result is refreshed in the background when it is returned, 0 disables refreshing
+     */
+    @Nonbinding long refreshAfter() default 0;
+
+    /**
+     * Unit of the refreshAfter
+     */
+    @Nonbinding ChronoUnit refreshAfterUnit() default ChronoUnit.SECONDS;
+
+}
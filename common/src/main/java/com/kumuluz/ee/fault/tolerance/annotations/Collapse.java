@@ -0,0 +1,68 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.annotations;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.time.temporal.ChronoUnit;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotation enabling request collapsing of an asynchronous method with a single parameter. Calls arriving within
+ * the window are collapsed into a single invocation of the batch method, which receives the list of parameters of
+ * collapsed calls and returns the list of their results in the same order. Can only be used on methods, the type
+ * target is required by the interceptor binding.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Collapse {
+
+    /**
+     * Name of the batch method declared in the same class
+     */
+    @Nonbinding String batchMethod() default "";
+
+    /**
+     * Time in which calls are collected into a batch
+     */
+    @Nonbinding long window() default 10;
+
+    /**
+     * Unit of the window
+     */
+    @Nonbinding ChronoUnit windowUnit() default ChronoUnit.MILLIS;
+
+    /**
+     * Maximum number of calls in a batch, a full batch is invoked before the window passes
+     */
+    @Nonbinding int maxBatchSize() default 100;
+
+}
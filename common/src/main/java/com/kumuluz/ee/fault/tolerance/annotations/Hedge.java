@@ -0,0 +1,62 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.annotations;
+
+import javax.enterprise.util.Nonbinding;
+import javax.interceptor.InterceptorBinding;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Inherited;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+import java.time.temporal.ChronoUnit;
+
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Annotation enabling hedged executions of an asynchronous method. If the first attempt does not complete within
+ * the hedge delay, a second attempt is started and the result of the attempt which succeeds first is used.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@Inherited
+@InterceptorBinding
+@Retention(RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Hedge {
+
+    /**
+     * Delay after which the second attempt is started
+     */
+    @Nonbinding long delay() default 100;
+
+    /**
+     * Unit of the delay
+     */
+    @Nonbinding ChronoUnit delayUnit() default ChronoUnit.MILLIS;
+
+    /**
+     * Percentile of the execution durations of the method used as a delay instead of the fixed delay, e.g. 0.95.
+     * Execution durations are recorded by the timeout metrics, 0 disables the derived delay.
+     */
+    @Nonbinding double percentile() default 0;
+
+}
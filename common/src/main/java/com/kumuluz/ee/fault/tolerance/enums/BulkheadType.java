@@ -0,0 +1,6 @@
+package com.kumuluz.ee.fault.tolerance.enums;
+
+public enum BulkheadType {
+    HYSTRIX,
+    SEMAPHORE;
+}
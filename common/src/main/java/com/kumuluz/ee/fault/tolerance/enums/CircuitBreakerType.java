@@ -2,5 +2,7 @@ package com.kumuluz.ee.fault.tolerance.enums;
 
 public enum CircuitBreakerType {
     HYSTRIX,
-    SUCCESS_THRESHOLD;
+    SUCCESS_THRESHOLD,
+    COUNT_SLIDING_WINDOW,
+    TIME_SLIDING_WINDOW;
 }
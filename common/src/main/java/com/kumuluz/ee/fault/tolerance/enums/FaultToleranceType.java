@@ -33,7 +33,10 @@ public enum FaultToleranceType {
     TIMEOUT("timeout"),
     FALLBACK("fallback"),
     RETRY("retry"),
-    CIRCUIT_BREAKER("circuit-breaker");
+    CIRCUIT_BREAKER("circuit-breaker"),
+    HEDGE("hedge"),
+    COLLAPSE("collapse"),
+    CACHE("cache");
 
     private final String key;
 
@@ -59,6 +62,12 @@ public enum FaultToleranceType {
             return RETRY;
         else if (str.equals(CIRCUIT_BREAKER.getKey()))
             return CIRCUIT_BREAKER;
+        else if (str.equals(HEDGE.getKey()))
+            return HEDGE;
+        else if (str.equals(COLLAPSE.getKey()))
+            return COLLAPSE;
+        else if (str.equals(CACHE.getKey()))
+            return CACHE;
         else
             return null;
     }
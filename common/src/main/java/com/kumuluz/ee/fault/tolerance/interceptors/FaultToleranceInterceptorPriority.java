@@ -34,12 +34,15 @@ public class FaultToleranceInterceptorPriority {
 
     private static final String CONTEXT_DATA_EXECUTION_METADATA_KEY = "fault-tolerance-execution-interception";
 
+    public static final int CACHE_RESULT = 0;
     public static final int TIMEOUT = 1;
     public static final int CIRCUIT_BREAKER = 2;
     public static final int BULKHEAD = 3;
     public static final int RETRY = 4;
     public static final int FALLBACK = 5;
     public static final int ASYNCHRONOUS = 6;
+    public static final int HEDGE = 7;
+    public static final int COLLAPSE = 8;
 
     public static boolean shouldExecute(InvocationContext ic) {
 
@@ -0,0 +1,39 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.interfaces;
+
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Terminal stage of an execution plan executing invocations asynchronously. The returned future is completed with the
+ * result of the asynchronous method.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public interface AsyncExecutionStage extends ExecutionStage {
+
+    CompletableFuture<Object> executeAsync(InvocationContext invocationContext, RequestContext requestContext);
+
+}
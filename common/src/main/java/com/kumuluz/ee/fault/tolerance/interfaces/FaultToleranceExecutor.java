@@ -39,6 +39,8 @@ public interface FaultToleranceExecutor {
 
     Object execute(InvocationContext invocationContext, RequestContext requestContext, ExecutionMetadata coreConfig) throws Exception;
 
+    void initialize(ExecutionMetadata metadata);
+
     void setPropertyValue(ConfigurationProperty property);
 
     ConfigurationProperty getPropertyValue(ConfigurationProperty property);
@@ -22,7 +22,7 @@ package com.kumuluz.ee.fault.tolerance.metrics;
 
 import org.eclipse.microprofile.metrics.*;
 
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Metrics collection for {@link org.eclipse.microprofile.faulttolerance.Bulkhead}.
@@ -34,6 +34,7 @@ public class BulkheadMetricsCollection extends BaseMetricsCollection {
 
     private static final String BULKHEAD_PREFIX = "bulkhead.";
 
+    private HistogramFactory histogramFactory;
     private boolean isAsync;
 
     private Counter callsAccepted;
@@ -41,11 +42,12 @@ public class BulkheadMetricsCollection extends BaseMetricsCollection {
     private Histogram executionDuration;
     private Histogram waitingDuration;
 
-    private AtomicLong currentlyExecuting;
-    private AtomicLong currentlyWaiting;
+    private LongAdder currentlyExecuting;
+    private LongAdder currentlyWaiting;
 
-    public BulkheadMetricsCollection(MetricRegistry registry, boolean isAsync) {
+    public BulkheadMetricsCollection(MetricRegistry registry, HistogramFactory histogramFactory, boolean isAsync) {
         super(registry);
+        this.histogramFactory = histogramFactory;
         this.isAsync = isAsync;
     }
 
@@ -71,11 +73,11 @@ public class BulkheadMetricsCollection extends BaseMetricsCollection {
                 MetricUnits.NANOSECONDS,
                 "Histogram of method execution times. This does not include any time spent waiting in the " +
                         "bulkhead queue.");
-        this.executionDuration = registry.histogram(executionDurationMetadata);
+        this.executionDuration = histogramFactory.histogram(registry, executionDurationMetadata);
 
-        this.currentlyExecuting = new AtomicLong(0);
+        this.currentlyExecuting = new LongAdder();
         registerGauge(metricsPrefix + BULKHEAD_PREFIX + "concurrentExecutions",
-                () -> this.currentlyExecuting.get(), MetricUnits.NONE, "Number of currently running executions");
+                () -> this.currentlyExecuting.sum(), MetricUnits.NONE, "Number of currently running executions");
 
         if (this.isAsync) {
             Metadata waitingDurationMetadata = createMetadata(
@@ -83,15 +85,25 @@ public class BulkheadMetricsCollection extends BaseMetricsCollection {
                     MetricType.HISTOGRAM,
                     MetricUnits.NANOSECONDS,
                     "Histogram of the time executions spend waiting in the queue");
-            this.waitingDuration = registry.histogram(waitingDurationMetadata);
+            this.waitingDuration = histogramFactory.histogram(registry, waitingDurationMetadata);
 
-            this.currentlyWaiting = new AtomicLong(0);
+            this.currentlyWaiting = new LongAdder();
             registerGauge(metricsPrefix + BULKHEAD_PREFIX + "waitingQueue.population",
-                    () -> this.currentlyWaiting.get(), MetricUnits.NONE, "Number of executions currently " +
+                    () -> this.currentlyWaiting.sum(), MetricUnits.NONE, "Number of executions currently " +
                             "waiting in the queue");
         }
     }
 
+    public void registerAdaptiveLimitMetrics(Gauge<Long> limitGauge, Gauge<Long> shortRttGauge,
+                                             Gauge<Long> longRttGauge) {
+        registerGauge(metricsPrefix + BULKHEAD_PREFIX + "adaptiveLimit.limit", limitGauge, MetricUnits.NONE,
+                "Current concurrency limit of the adaptive bulkhead");
+        registerGauge(metricsPrefix + BULKHEAD_PREFIX + "adaptiveLimit.shortRtt", shortRttGauge,
+                MetricUnits.NANOSECONDS, "Short term average round trip time of executions");
+        registerGauge(metricsPrefix + BULKHEAD_PREFIX + "adaptiveLimit.longRtt", longRttGauge,
+                MetricUnits.NANOSECONDS, "Long term average round trip time of executions");
+    }
+
     public Counter getCallsAccepted() {
         return callsAccepted;
     }
@@ -108,11 +120,11 @@ public class BulkheadMetricsCollection extends BaseMetricsCollection {
         return waitingDuration;
     }
 
-    public AtomicLong getCurrentlyExecuting() {
+    public LongAdder getCurrentlyExecuting() {
         return currentlyExecuting;
     }
 
-    public AtomicLong getCurrentlyWaiting() {
+    public LongAdder getCurrentlyWaiting() {
         return currentlyWaiting;
     }
 }
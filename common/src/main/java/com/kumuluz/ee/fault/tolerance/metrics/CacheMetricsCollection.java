@@ -0,0 +1,83 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.metrics;
+
+import org.eclipse.microprofile.metrics.*;
+
+/**
+ * Metrics collection for {@link com.kumuluz.ee.fault.tolerance.annotations.CacheResult}.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CacheMetricsCollection extends BaseMetricsCollection {
+
+    private static final String CACHE_PREFIX = "cache.";
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    public CacheMetricsCollection(MetricRegistry registry) {
+        super(registry);
+    }
+
+    @Override
+    protected void initMetrics() {
+        Metadata hitsMetadata = createMetadata(
+                metricsPrefix + CACHE_PREFIX + "hits.total",
+                MetricType.COUNTER,
+                MetricUnits.NONE,
+                "The number of invocations returning a cached result");
+        this.hits = registry.counter(hitsMetadata);
+
+        Metadata missesMetadata = createMetadata(
+                metricsPrefix + CACHE_PREFIX + "misses.total",
+                MetricType.COUNTER,
+                MetricUnits.NONE,
+                "The number of invocations executed because their result was not cached");
+        this.misses = registry.counter(missesMetadata);
+
+        Metadata evictionsMetadata = createMetadata(
+                metricsPrefix + CACHE_PREFIX + "evictions.total",
+                MetricType.COUNTER,
+                MetricUnits.NONE,
+                "The number of cached results removed because they expired or the cache was full");
+        this.evictions = registry.counter(evictionsMetadata);
+    }
+
+    public void registerSizeMetrics(Gauge<Long> sizeGauge) {
+        registerGauge(metricsPrefix + CACHE_PREFIX + "size", sizeGauge, MetricUnits.NONE,
+                "The approximate number of currently cached results");
+    }
+
+    public Counter getHits() {
+        return hits;
+    }
+
+    public Counter getMisses() {
+        return misses;
+    }
+
+    public Counter getEvictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.metrics;
+
+import org.HdrHistogram.HistogramIterationValue;
+import org.HdrHistogram.Recorder;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Snapshot;
+
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * High dynamic range histogram. Values are recorded into recorders striped by thread, so concurrent updates rarely
+ * touch the same recorder. The window is divided into a fixed number of time slices. When a snapshot is taken, the
+ * values recorded since the previous snapshot are swapped out of the recorders into the histogram of the current
+ * slice and the snapshot merges the slices within the window. Slice histograms and swapped out interval histograms
+ * are reused, so memory does not grow with the number of snapshots. Snapshots taken shortly one after another, as
+ * within a single scrape, share the same merged histogram.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HdrHistogram implements Histogram {
+
+    private static final int MAX_STRIPES = 64;
+    private static final int SLICES = 10;
+    private static final long MIN_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SNAPSHOT_REUSE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final Recorder[] recorders;
+    private final org.HdrHistogram.Histogram[] intervalHistograms;
+    private final int mask;
+    private final long highestTrackableValue;
+
+    private final LongAdder count = new LongAdder();
+
+    // one slice more than the window, the current slice is only partially filled
+    private final Slice[] slices = new Slice[SLICES + 1];
+    private final long sliceNanos;
+    private final long snapshotReuseNanos;
+    private final long startTime = System.nanoTime();
+
+    private HdrSnapshot lastSnapshot;
+    private long lastSnapshotTime;
+
+    public HdrHistogram(int significantDigits, long highestTrackableValue, long windowInNanos) {
+        this.highestTrackableValue = highestTrackableValue;
+        this.sliceNanos = Math.max(MIN_SLICE_NANOS, windowInNanos / SLICES);
+        this.snapshotReuseNanos = Math.min(SNAPSHOT_REUSE_NANOS, sliceNanos);
+
+        int stripes = Math.min(MAX_STRIPES, nextPowerOfTwo(Runtime.getRuntime().availableProcessors()));
+        this.recorders = new Recorder[stripes];
+        this.intervalHistograms = new org.HdrHistogram.Histogram[stripes];
+        this.mask = stripes - 1;
+
+        for (int i = 0; i < stripes; i++) {
+            // recorders resize on demand, so unused ranges take no memory
+            recorders[i] = new Recorder(significantDigits);
+        }
+
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new Slice(new org.HdrHistogram.Histogram(significantDigits));
+        }
+    }
+
+    @Override
+    public void update(int value) {
+        update((long) value);
+    }
+
+    @Override
+    public void update(long value) {
+        long clamped = Math.max(0, Math.min(value, highestTrackableValue));
+
+        recorders[(int) Thread.currentThread().getId() & mask].recordValue(clamped);
+        count.increment();
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public synchronized Snapshot getSnapshot() {
+
+        long now = System.nanoTime();
+
+        if (lastSnapshot != null && now - lastSnapshotTime < snapshotReuseNanos) {
+            return lastSnapshot;
+        }
+
+        long sliceIndex = (now - startTime) / sliceNanos;
+        Slice current = slices[(int) (sliceIndex % slices.length)];
+
+        if (current.index != sliceIndex) {
+            current.histogram.reset();
+            current.index = sliceIndex;
+        }
+
+        for (int i = 0; i < recorders.length; i++) {
+            intervalHistograms[i] = recorders[i].getIntervalHistogram(intervalHistograms[i]);
+            current.histogram.add(intervalHistograms[i]);
+        }
+
+        org.HdrHistogram.Histogram merged = current.histogram.copy();
+        for (Slice slice : slices) {
+            if (slice != current && slice.index >= 0 && sliceIndex - slice.index < slices.length) {
+                merged.add(slice.histogram);
+            }
+        }
+
+        lastSnapshot = new HdrSnapshot(merged);
+        lastSnapshotTime = now;
+
+        return lastSnapshot;
+    }
+
+    private static int nextPowerOfTwo(int value) {
+        return (value <= 1) ? 1 : Integer.highestOneBit(value - 1) << 1;
+    }
+
+    private static class Slice {
+
+        private final org.HdrHistogram.Histogram histogram;
+        private long index = -1;
+
+        private Slice(org.HdrHistogram.Histogram histogram) {
+            this.histogram = histogram;
+        }
+    }
+
+    /**
+     * Snapshot of the merged histogram. Values are reported as distinct recorded values, one per histogram bucket.
+     */
+    private static class HdrSnapshot extends Snapshot {
+
+        private final org.HdrHistogram.Histogram histogram;
+
+        private HdrSnapshot(org.HdrHistogram.Histogram histogram) {
+            this.histogram = histogram;
+        }
+
+        @Override
+        public double getValue(double quantile) {
+            return histogram.getValueAtPercentile(quantile * 100);
+        }
+
+        @Override
+        public long[] getValues() {
+
+            List<Long> values = new ArrayList<>();
+
+            for (HistogramIterationValue value : histogram.recordedValues()) {
+                values.add(value.getValueIteratedTo());
+            }
+
+            return values.stream().mapToLong(Long::longValue).toArray();
+        }
+
+        @Override
+        public int size() {
+            return (int) Math.min(Integer.MAX_VALUE, histogram.getTotalCount());
+        }
+
+        @Override
+        public long getMax() {
+            return histogram.getMaxValue();
+        }
+
+        @Override
+        public double getMean() {
+            return histogram.getMean();
+        }
+
+        @Override
+        public long getMin() {
+            return histogram.getMinValue();
+        }
+
+        @Override
+        public double getStdDev() {
+            return histogram.getStdDeviation();
+        }
+
+        @Override
+        public void dump(OutputStream output) {
+
+            // output stream is owned by the caller, it is flushed but not closed
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+            for (long value : getValues()) {
+                out.printf("%d%n", value);
+            }
+            out.flush();
+        }
+    }
+}
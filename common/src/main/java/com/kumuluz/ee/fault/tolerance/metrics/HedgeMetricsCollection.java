@@ -0,0 +1,84 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.metrics;
+
+import org.eclipse.microprofile.metrics.*;
+
+/**
+ * Metrics collection for {@link com.kumuluz.ee.fault.tolerance.annotations.Hedge}.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HedgeMetricsCollection extends BaseMetricsCollection {
+
+    private static final String HEDGE_PREFIX = "hedge.";
+
+    private Counter hedgesLaunched;
+    private Counter hedgesWon;
+    private Counter hedgesDenied;
+
+    public HedgeMetricsCollection(MetricRegistry registry) {
+        super(registry);
+    }
+
+    @Override
+    protected void initMetrics() {
+        Metadata hedgesLaunchedMetadata = createMetadata(
+                metricsPrefix + HEDGE_PREFIX + "hedgesLaunched.total",
+                MetricType.COUNTER,
+                MetricUnits.NONE,
+                "The number of hedged attempts started because the first attempt did not complete within the " +
+                        "hedge delay");
+        this.hedgesLaunched = registry.counter(hedgesLaunchedMetadata);
+
+        Metadata hedgesWonMetadata = createMetadata(
+                metricsPrefix + HEDGE_PREFIX + "hedgesWon.total",
+                MetricType.COUNTER,
+                MetricUnits.NONE,
+                "The number of hedged attempts which succeeded before the first attempt");
+        this.hedgesWon = registry.counter(hedgesWonMetadata);
+
+        Metadata hedgesDeniedMetadata = createMetadata(
+                metricsPrefix + HEDGE_PREFIX + "budget.hedgesDenied.total",
+                MetricType.COUNTER,
+                MetricUnits.NONE,
+                "The number of hedged attempts skipped because the hedge budget was exhausted");
+        this.hedgesDenied = registry.counter(hedgesDeniedMetadata);
+    }
+
+    public void registerBudgetMetrics(Gauge<Long> availableHedgesGauge) {
+        registerGauge(metricsPrefix + HEDGE_PREFIX + "budget.availableHedges", availableHedgesGauge,
+                MetricUnits.NONE, "The number of hedged attempts currently available in the hedge budget");
+    }
+
+    public Counter getHedgesLaunched() {
+        return hedgesLaunched;
+    }
+
+    public Counter getHedgesWon() {
+        return hedgesWon;
+    }
+
+    public Counter getHedgesDenied() {
+        return hedgesDenied;
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.metrics;
+
+import com.kumuluz.ee.fault.tolerance.enums.HistogramType;
+import org.eclipse.microprofile.metrics.*;
+
+/**
+ * Creates duration histograms of the metrics collections, either the default histograms of the registry or high
+ * dynamic range histograms. High dynamic range histograms require the optional HdrHistogram dependency, its classes
+ * are only loaded if high dynamic range histograms are configured.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HistogramFactory {
+
+    public static final HistogramFactory DEFAULT = new HistogramFactory(HistogramType.DEFAULT, 0, 0, 0);
+
+    private final HistogramType type;
+    private final int significantDigits;
+    private final long highestTrackableValue;
+    private final long windowInNanos;
+
+    public HistogramFactory(HistogramType type, int significantDigits, long highestTrackableValue,
+                            long windowInNanos) {
+        this.type = type;
+        this.significantDigits = significantDigits;
+        this.highestTrackableValue = highestTrackableValue;
+        this.windowInNanos = windowInNanos;
+    }
+
+    /**
+     * Registers the histogram. High dynamic range histograms are registered together with a gauge of their 90th
+     * percentile, which is not a part of the exported snapshot. The gauge reads the snapshot exported in the same
+     * scrape, so the recorded values are merged only once.
+     *
+     * @param registry Metric registry
+     * @param metadata Metadata of the histogram
+     * @return Registered histogram
+     */
+    public Histogram histogram(MetricRegistry registry, Metadata metadata) {
+
+        if (type == HistogramType.DEFAULT) {
+            return registry.histogram(metadata);
+        }
+
+        Histogram existing = registry.getHistograms().get(metadata.getName());
+        if (existing != null) {
+            return existing;
+        }
+
+        Histogram histogram = registry.register(metadata,
+                new HdrHistogram(significantDigits, highestTrackableValue, windowInNanos));
+
+        String p90Name = metadata.getName() + ".p90";
+        registry.register(new Metadata(p90Name, p90Name, "90th percentile of the " + metadata.getName() +
+                        " histogram", MetricType.GAUGE, metadata.getUnit()),
+                (Gauge<Long>) () -> (long) histogram.getSnapshot().getValue(0.9));
+
+        return histogram;
+    }
+}
@@ -20,7 +20,11 @@
  */
 package com.kumuluz.ee.fault.tolerance.metrics;
 
+import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
 import com.kumuluz.ee.fault.tolerance.config.MicroprofileConfigUtil;
+import com.kumuluz.ee.fault.tolerance.enums.HistogramType;
+import com.kumuluz.ee.fault.tolerance.utils.FaultToleranceHelper;
+import com.kumuluz.ee.fault.tolerance.utils.FaultToleranceUtilImpl;
 import org.eclipse.microprofile.metrics.MetricRegistry;
 
 import javax.enterprise.context.ApplicationScoped;
@@ -28,6 +32,7 @@ import javax.enterprise.context.Initialized;
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.CDI;
 import javax.inject.Inject;
+import java.time.Duration;
 import java.util.Optional;
 import java.util.logging.Logger;
 
@@ -42,10 +47,13 @@ public class MetricsUtil {
 
     private static final Logger log = Logger.getLogger(MetricsUtil.class.getSimpleName());
 
+    private static final String HISTOGRAM_CONFIG_PREFIX = FaultToleranceUtilImpl.SERVICE_NAME + ".metrics.histogram.";
+
     @Inject
     private MicroprofileConfigUtil configUtil;
 
     private MetricRegistry registry = null;
+    private HistogramFactory histogramFactory = HistogramFactory.DEFAULT;
 
     public void init(@Observes @Initialized(ApplicationScoped.class) Object init) {
 
@@ -55,6 +63,7 @@ public class MetricsUtil {
             try {
                 Class.forName("com.kumuluz.ee.metrics.MetricsExtension");
                 registry = CDI.current().select(MetricRegistry.class).get();
+                histogramFactory = initHistogramFactory();
                 log.info("KumuluzEE Metrics found, Fault Tolerance metrics will be initialized.");
             } catch (ClassNotFoundException ignored) {
                 log.info("KumuluzEE Metrics not found, Fault Tolerance metrics will not be initialized.");
@@ -67,4 +76,52 @@ public class MetricsUtil {
     public Optional<MetricRegistry> getRegistry() {
         return Optional.ofNullable(registry);
     }
+
+    public HistogramFactory getHistogramFactory() {
+        return histogramFactory;
+    }
+
+    private HistogramFactory initHistogramFactory() {
+
+        ConfigurationUtil config = ConfigurationUtil.getInstance();
+        HistogramType type;
+
+        try {
+            type = config.get(HISTOGRAM_CONFIG_PREFIX + "type")
+                    .map(value -> HistogramType.valueOf(value.toUpperCase()))
+                    .orElse(HistogramType.DEFAULT);
+        } catch (IllegalArgumentException e) {
+            log.severe("Could not determine histogram type from config, using DEFAULT histograms.");
+            return HistogramFactory.DEFAULT;
+        }
+
+        if (type == HistogramType.DEFAULT) {
+            return HistogramFactory.DEFAULT;
+        }
+
+        try {
+            Class.forName("org.HdrHistogram.Recorder");
+        } catch (ClassNotFoundException e) {
+            log.severe("HdrHistogram not found, using DEFAULT histograms. Add org.hdrhistogram:HdrHistogram " +
+                    "dependency to record HDR histograms.");
+            return HistogramFactory.DEFAULT;
+        }
+
+        // HdrHistogram supports precision of up to 5 significant digits
+        int significantDigits = Math.max(1, Math.min(5,
+                config.getInteger(HISTOGRAM_CONFIG_PREFIX + "significant-digits").orElse(2)));
+        long highestTrackableValue = config.get(HISTOGRAM_CONFIG_PREFIX + "highest-trackable-value")
+                .map(FaultToleranceHelper::parseDuration)
+                .orElse(Duration.ofMinutes(60))
+                .toNanos();
+        long window = config.get(HISTOGRAM_CONFIG_PREFIX + "window")
+                .map(FaultToleranceHelper::parseDuration)
+                .orElse(Duration.ofSeconds(60))
+                .toNanos();
+
+        log.info("Fault Tolerance duration metrics will be recorded with HDR histograms (" + significantDigits +
+                " significant digits).");
+
+        return new HistogramFactory(type, significantDigits, highestTrackableValue, window);
+    }
 }
@@ -36,6 +36,7 @@ public class RetryMetricsCollection extends BaseMetricsCollection {
     private Counter callsSucceededRetried;
     private Counter callsFailed;
     private Counter retriesTotal;
+    private Counter retriesDenied;
 
     public RetryMetricsCollection(MetricRegistry registry) {
         super(registry);
@@ -72,6 +73,18 @@ public class RetryMetricsCollection extends BaseMetricsCollection {
         this.retriesTotal = registry.counter(retriesTotalMetadata);
     }
 
+    public void registerBudgetMetrics(Gauge<Long> availableRetriesGauge) {
+        Metadata retriesDeniedMetadata = createMetadata(
+                metricsPrefix + RETRY_PREFIX + "budget.retriesDenied.total",
+                MetricType.COUNTER,
+                MetricUnits.NONE,
+                "The number of retries skipped because the retry budget was exhausted");
+        this.retriesDenied = registry.counter(retriesDeniedMetadata);
+
+        registerGauge(metricsPrefix + RETRY_PREFIX + "budget.availableRetries", availableRetriesGauge,
+                MetricUnits.NONE, "The number of retries currently available in the retry budget");
+    }
+
     public Counter getCallsSucceededNotRetried() {
         return callsSucceededNotRetried;
     }
@@ -87,4 +100,8 @@ public class RetryMetricsCollection extends BaseMetricsCollection {
     public Counter getRetriesTotal() {
         return retriesTotal;
     }
+
+    public Counter getRetriesDenied() {
+        return retriesDenied;
+    }
 }
@@ -32,12 +32,15 @@ public class TimeoutMetricsCollection extends BaseMetricsCollection {
 
     private static final String TIMEOUT_PREFIX = "timeout.";
 
+    private HistogramFactory histogramFactory;
+
     private Histogram executionDuration;
     private Counter callsTimedOut;
     private Counter callsNotTimedOut;
 
-    public TimeoutMetricsCollection(MetricRegistry registry) {
+    public TimeoutMetricsCollection(MetricRegistry registry, HistogramFactory histogramFactory) {
         super(registry);
+        this.histogramFactory = histogramFactory;
     }
 
     @Override
@@ -47,7 +50,7 @@ public class TimeoutMetricsCollection extends BaseMetricsCollection {
                 MetricType.HISTOGRAM,
                 MetricUnits.NANOSECONDS,
                 "Histogram of execution times for the method");
-        executionDuration = registry.histogram(executionDurationMetadata);
+        executionDuration = histogramFactory.histogram(registry, executionDurationMetadata);
 
         Metadata callsTimedOutMetadata = createMetadata(
                 metricsPrefix + TIMEOUT_PREFIX + "callsTimedOut.total",
@@ -20,14 +20,19 @@
  */
 package com.kumuluz.ee.fault.tolerance.models;
 
+import com.kumuluz.ee.fault.tolerance.annotations.CacheResult;
+import com.kumuluz.ee.fault.tolerance.annotations.Collapse;
+import com.kumuluz.ee.fault.tolerance.annotations.Hedge;
+import com.kumuluz.ee.fault.tolerance.enums.BulkheadType;
 import com.kumuluz.ee.fault.tolerance.enums.CircuitBreakerType;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
 import com.kumuluz.ee.fault.tolerance.metrics.*;
+import com.kumuluz.ee.fault.tolerance.utils.FallbackHandlerProvider;
+import com.kumuluz.ee.fault.tolerance.utils.FaultToleranceHelper;
 import org.eclipse.microprofile.faulttolerance.*;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Method;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
 
 /**
  * Model for holding information fault tolerance needs to execute method.
@@ -44,22 +49,36 @@ public class ExecutionMetadata {
 
     private boolean asynchronous;
     private Class<? extends FallbackHandler> fallbackHandlerClass;
+    private FallbackHandlerProvider fallbackHandlerProvider;
     private Method fallbackMethod;
+    private MethodHandle fallbackMethodHandle;
+    private MethodHandle batchMethodHandle;
+    private MethodHandle targetMethodHandle;
 
     private Bulkhead bulkhead;
     private Timeout timeout;
     private Retry retry;
     private CircuitBreaker circuitBreaker;
+    private Hedge hedge;
+    private Collapse collapse;
+    private CacheResult cacheResult;
 
     private Integer circuitBreakerSuccessThreshold;
     private CircuitBreakerType circuitBreakerType;
+    private BulkheadType bulkheadType;
 
-    private Map<String, CommonMetricsCollection> commonMetricsCollections;
-    private Map<String, RetryMetricsCollection> retryMetricsCollections;
-    private Map<String, TimeoutMetricsCollection> timeoutMetricsCollections;
-    private Map<String, FallbackMetricsCollection> fallbackMetricsCollectionMap;
-    private Map<String, CircuitBreakerMetricsCollection> cbMetricsCollectionMap;
-    private Map<String, BulkheadMetricsCollection> bulkheadMetricsCollectionMap;
+    private volatile ExecutionStage executionPlan;
+
+    private final String metricsPrefix;
+
+    private CommonMetricsCollection commonMetricsCollection;
+    private RetryMetricsCollection retryMetricsCollection;
+    private TimeoutMetricsCollection timeoutMetricsCollection;
+    private FallbackMetricsCollection fallbackMetricsCollection;
+    private CircuitBreakerMetricsCollection cbMetricsCollection;
+    private BulkheadMetricsCollection bulkheadMetricsCollection;
+    private HedgeMetricsCollection hedgeMetricsCollection;
+    private CacheMetricsCollection cacheMetricsCollection;
 
     public ExecutionMetadata(Class targetClass, Method method, String commandKey, String groupKey) {
         this.targetClass = targetClass;
@@ -67,12 +86,8 @@ public class ExecutionMetadata {
         this.commandKey = commandKey;
         this.groupKey = groupKey;
 
-        this.commonMetricsCollections = new HashMap<>();
-        this.retryMetricsCollections = new HashMap<>();
-        this.timeoutMetricsCollections = new HashMap<>();
-        this.fallbackMetricsCollectionMap = new HashMap<>();
-        this.cbMetricsCollectionMap = new HashMap<>();
-        this.bulkheadMetricsCollectionMap = new HashMap<>();
+        this.metricsPrefix = "ft." + targetClass.getCanonicalName() + "." +
+                FaultToleranceHelper.getMetricsMethodName(targetClass, method) + ".";
     }
 
     public String getIdentifier() {
@@ -111,6 +126,14 @@ public class ExecutionMetadata {
         this.fallbackHandlerClass = fallbackHandlerClass;
     }
 
+    public FallbackHandlerProvider getFallbackHandlerProvider() {
+        return fallbackHandlerProvider;
+    }
+
+    public void setFallbackHandlerProvider(FallbackHandlerProvider fallbackHandlerProvider) {
+        this.fallbackHandlerProvider = fallbackHandlerProvider;
+    }
+
     public Method getFallbackMethod() {
         return fallbackMethod;
     }
@@ -119,6 +142,17 @@ public class ExecutionMetadata {
         this.fallbackMethod = fallbackMethod;
     }
 
+    /**
+     * Fallback method bound to a handle of type (Object target, Object[] parameters)Object.
+     */
+    public MethodHandle getFallbackMethodHandle() {
+        return fallbackMethodHandle;
+    }
+
+    public void setFallbackMethodHandle(MethodHandle fallbackMethodHandle) {
+        this.fallbackMethodHandle = fallbackMethodHandle;
+    }
+
     public Bulkhead getBulkhead() {
         return bulkhead;
     }
@@ -151,6 +185,55 @@ public class ExecutionMetadata {
         this.circuitBreaker = circuitBreaker;
     }
 
+    public Hedge getHedge() {
+        return hedge;
+    }
+
+    public void setHedge(Hedge hedge) {
+        this.hedge = hedge;
+    }
+
+    public Collapse getCollapse() {
+        return collapse;
+    }
+
+    public void setCollapse(Collapse collapse) {
+        this.collapse = collapse;
+    }
+
+    public CacheResult getCacheResult() {
+        return cacheResult;
+    }
+
+    public void setCacheResult(CacheResult cacheResult) {
+        this.cacheResult = cacheResult;
+    }
+
+    /**
+     * Batch method of {@link Collapse} bound to a handle of type (Object target, Object[] parameters)Object, which
+     * invokes the implementation of the bean class without intercepting the invocation again.
+     */
+    public MethodHandle getBatchMethodHandle() {
+        return batchMethodHandle;
+    }
+
+    public void setBatchMethodHandle(MethodHandle batchMethodHandle) {
+        this.batchMethodHandle = batchMethodHandle;
+    }
+
+    /**
+     * Method bound to a handle of type (Object target, Object[] parameters)Object, which invokes the implementation of
+     * the bean class without intercepting the invocation again. Bound for methods starting invocations of their own,
+     * e.g. hedged attempts of {@link Hedge} or refreshes of {@link CacheResult}.
+     */
+    public MethodHandle getTargetMethodHandle() {
+        return targetMethodHandle;
+    }
+
+    public void setTargetMethodHandle(MethodHandle targetMethodHandle) {
+        this.targetMethodHandle = targetMethodHandle;
+    }
+
     public Integer getCircuitBreakerSuccessThreshold() {
         return circuitBreakerSuccessThreshold;
     }
@@ -167,68 +250,115 @@ public class ExecutionMetadata {
         this.circuitBreakerType = circuitBreakerType;
     }
 
-    public Optional<CommonMetricsCollection> getCommonMetricsCollection(String methodName) {
-        return Optional.ofNullable(commonMetricsCollections.get(methodName));
+    public BulkheadType getBulkheadType() {
+        return bulkheadType;
+    }
+
+    public void setBulkheadType(BulkheadType bulkheadType) {
+        this.bulkheadType = bulkheadType;
+    }
+
+    public ExecutionStage getExecutionPlan() {
+        return executionPlan;
+    }
+
+    public void setExecutionPlan(ExecutionStage executionPlan) {
+        this.executionPlan = executionPlan;
     }
 
-    public Optional<RetryMetricsCollection> getRetryMetricsCollection(String methodName) {
-        return Optional.ofNullable(retryMetricsCollections.get(methodName));
+    /**
+     * Metrics collections are bound to the method of this metadata and are null if metrics are disabled.
+     */
+    public CommonMetricsCollection getCommonMetricsCollection() {
+        return commonMetricsCollection;
     }
 
-    public Optional<TimeoutMetricsCollection> getTimeoutMetricsCollection(String methodName) {
-        return Optional.ofNullable(timeoutMetricsCollections.get(methodName));
+    public RetryMetricsCollection getRetryMetricsCollection() {
+        return retryMetricsCollection;
     }
 
-    public Optional<FallbackMetricsCollection> getFallbackMetricsCollection(String methodName) {
-        return Optional.ofNullable(fallbackMetricsCollectionMap.get(methodName));
+    public TimeoutMetricsCollection getTimeoutMetricsCollection() {
+        return timeoutMetricsCollection;
     }
 
-    public Optional<CircuitBreakerMetricsCollection> getCbMetricsCollection(String methodName) {
-        return Optional.ofNullable(cbMetricsCollectionMap.get(methodName));
+    public FallbackMetricsCollection getFallbackMetricsCollection() {
+        return fallbackMetricsCollection;
     }
 
-    public Optional<BulkheadMetricsCollection> getBulkheadMetricsCollection(String methodName) {
-        return Optional.ofNullable(bulkheadMetricsCollectionMap.get(methodName));
+    public CircuitBreakerMetricsCollection getCbMetricsCollection() {
+        return cbMetricsCollection;
+    }
+
+    public BulkheadMetricsCollection getBulkheadMetricsCollection() {
+        return bulkheadMetricsCollection;
+    }
+
+    public HedgeMetricsCollection getHedgeMetricsCollection() {
+        return hedgeMetricsCollection;
+    }
+
+    public CacheMetricsCollection getCacheMetricsCollection() {
+        return cacheMetricsCollection;
+    }
+
+    public void setCommonMetricsCollection(CommonMetricsCollection commonMetricsCollection) {
+        if (this.commonMetricsCollection == null) {
+            initMetricsCollection(commonMetricsCollection);
+            this.commonMetricsCollection = commonMetricsCollection;
+        }
+    }
+
+    public void setRetryMetricsCollection(RetryMetricsCollection retryMetricsCollection) {
+        if (this.retryMetricsCollection == null) {
+            initMetricsCollection(retryMetricsCollection);
+            this.retryMetricsCollection = retryMetricsCollection;
+        }
     }
 
-    public void addCommonMetricsCollection(Method method, CommonMetricsCollection commonMetricsCollection) {
-        if (commonMetricsCollections.putIfAbsent(method.getName(), commonMetricsCollection) == null) {
-            initMetricsCollection(method.getName(), commonMetricsCollection);
+    public void setTimeoutMetricsCollection(TimeoutMetricsCollection timeoutMetricsCollection) {
+        if (this.timeoutMetricsCollection == null) {
+            initMetricsCollection(timeoutMetricsCollection);
+            this.timeoutMetricsCollection = timeoutMetricsCollection;
         }
     }
 
-    public void addRetryMetricsCollection(Method method, RetryMetricsCollection retryMetricsCollection) {
-        if (retryMetricsCollections.putIfAbsent(method.getName(), retryMetricsCollection) == null) {
-            initMetricsCollection(method.getName(), retryMetricsCollection);
+    public void setFallbackMetricsCollection(FallbackMetricsCollection fallbackMetricsCollection) {
+        if (this.fallbackMetricsCollection == null) {
+            initMetricsCollection(fallbackMetricsCollection);
+            this.fallbackMetricsCollection = fallbackMetricsCollection;
         }
     }
 
-    public void addTimeoutMetricsCollection(Method method, TimeoutMetricsCollection timeoutMetricsCollection) {
-        if (timeoutMetricsCollections.putIfAbsent(method.getName(), timeoutMetricsCollection) == null) {
-            initMetricsCollection(method.getName(), timeoutMetricsCollection);
+    public void setCbMetricsCollection(CircuitBreakerMetricsCollection cbMetricsCollection) {
+        if (this.cbMetricsCollection == null) {
+            initMetricsCollection(cbMetricsCollection);
+            this.cbMetricsCollection = cbMetricsCollection;
         }
     }
 
-    public void addFallbackMetricsCollection(Method method, FallbackMetricsCollection fallbackMetricsCollection) {
-        if (fallbackMetricsCollectionMap.putIfAbsent(method.getName(), fallbackMetricsCollection) == null) {
-            initMetricsCollection(method.getName(), fallbackMetricsCollection);
+    public void setBulkheadMetricsCollection(BulkheadMetricsCollection bulkheadMetricsCollection) {
+        if (this.bulkheadMetricsCollection == null) {
+            initMetricsCollection(bulkheadMetricsCollection);
+            this.bulkheadMetricsCollection = bulkheadMetricsCollection;
         }
     }
 
-    public void addCbMetricsCollection(Method method, CircuitBreakerMetricsCollection cbMetricsCollection) {
-        if (cbMetricsCollectionMap.putIfAbsent(method.getName(), cbMetricsCollection) == null) {
-            initMetricsCollection(method.getName(), cbMetricsCollection);
+    public void setHedgeMetricsCollection(HedgeMetricsCollection hedgeMetricsCollection) {
+        if (this.hedgeMetricsCollection == null) {
+            initMetricsCollection(hedgeMetricsCollection);
+            this.hedgeMetricsCollection = hedgeMetricsCollection;
         }
     }
 
-    public void addBulkheadMetricsCollection(Method method, BulkheadMetricsCollection bulkheadMetricsCollection) {
-        if (bulkheadMetricsCollectionMap.putIfAbsent(method.getName(), bulkheadMetricsCollection) == null) {
-            initMetricsCollection(method.getName(), bulkheadMetricsCollection);
+    public void setCacheMetricsCollection(CacheMetricsCollection cacheMetricsCollection) {
+        if (this.cacheMetricsCollection == null) {
+            initMetricsCollection(cacheMetricsCollection);
+            this.cacheMetricsCollection = cacheMetricsCollection;
         }
     }
 
-    private void initMetricsCollection(String methodName, BaseMetricsCollection baseMetricsCollection) {
-        baseMetricsCollection.setMetricsPrefix("ft." + this.targetClass.getCanonicalName() + "." + methodName + ".");
+    private void initMetricsCollection(BaseMetricsCollection baseMetricsCollection) {
+        baseMetricsCollection.setMetricsPrefix(metricsPrefix);
         baseMetricsCollection.initialize();
     }
 }
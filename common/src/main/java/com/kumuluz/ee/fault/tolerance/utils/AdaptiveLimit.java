@@ -0,0 +1,160 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Concurrency limit adapted to the round trip times of executions. The limit starts at the maximum and is kept
+ * between the minimum and the maximum. Every change of the limit is passed to the limit listener, which applies it
+ * to the bulkhead.
+ *
+ * Executions report their start and completion. Executions which were rejected or short circuited before running
+ * are not sampled, since their round trip time says nothing about the load of the service.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public abstract class AdaptiveLimit {
+
+    // weights of the latest sample in the short and the long term round trip time averages
+    private static final double SHORT_RTT_WEIGHT = 0.1;
+    private static final double LONG_RTT_WEIGHT = 0.002;
+
+    protected final int minLimit;
+    protected final int maxLimit;
+
+    private final IntConsumer limitListener;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final ReentrantLock updateLock = new ReentrantLock();
+
+    // guarded by updateLock
+    private double estimatedLimit;
+
+    private volatile int limit;
+    private volatile double shortRtt;
+    private volatile double longRtt;
+
+    protected AdaptiveLimit(int minLimit, int maxLimit, IntConsumer limitListener) {
+        this.maxLimit = Math.max(1, maxLimit);
+        this.minLimit = Math.max(1, Math.min(minLimit, this.maxLimit));
+        this.limitListener = limitListener;
+        this.estimatedLimit = this.maxLimit;
+        this.limit = this.maxLimit;
+    }
+
+    /**
+     * Computes the new estimate of the limit. Called under lock.
+     *
+     * @param estimatedLimit Current estimate of the limit
+     * @param rtt            Round trip time of the sample in nanoseconds
+     * @param inFlight       Number of executions in progress when the sample completed
+     * @param dropped        Whether the execution timed out or was rejected by the invoked service
+     * @return New estimate, clamped to the limit bounds by the caller
+     */
+    protected abstract double update(double estimatedLimit, long rtt, int inFlight, boolean dropped);
+
+    /**
+     * @return Start time of the execution, to be passed to {@link #onComplete(long, boolean)}
+     */
+    public long onStart() {
+        inFlight.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    public void onComplete(long startTime, boolean dropped) {
+
+        long rtt = System.nanoTime() - startTime;
+        int currentInFlight = inFlight.getAndDecrement();
+
+        // samples arriving during an update are skipped, so invocations never wait for the lock
+        if (!updateLock.tryLock()) {
+            return;
+        }
+
+        try {
+            updateRtt(rtt);
+
+            estimatedLimit = Math.max(minLimit,
+                    Math.min(maxLimit, update(estimatedLimit, rtt, currentInFlight, dropped)));
+
+            int newLimit = (int) estimatedLimit;
+
+            if (newLimit != limit) {
+                limit = newLimit;
+                limitListener.accept(newLimit);
+            }
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * Completes an execution started with {@link #onStart()} without sampling it.
+     */
+    public void onIgnore() {
+        inFlight.decrementAndGet();
+    }
+
+    private void updateRtt(long rtt) {
+
+        if (longRtt == 0) {
+            shortRtt = rtt;
+            longRtt = rtt;
+        } else {
+            shortRtt = shortRtt + (rtt - shortRtt) * SHORT_RTT_WEIGHT;
+            longRtt = longRtt + (rtt - longRtt) * LONG_RTT_WEIGHT;
+        }
+    }
+
+    /**
+     * Lets the long term average follow a lasting drop of round trip times faster. Called under lock.
+     */
+    protected void decayLongRtt(double factor) {
+        longRtt = longRtt * factor;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getShortRtt() {
+        return (long) shortRtt;
+    }
+
+    public long getLongRtt() {
+        return (long) longRtt;
+    }
+
+    protected double getShortRttEstimate() {
+        return shortRtt;
+    }
+
+    protected double getLongRttEstimate() {
+        return longRtt;
+    }
+}
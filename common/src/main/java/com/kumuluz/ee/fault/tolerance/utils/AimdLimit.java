@@ -0,0 +1,60 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Additive increase, multiplicative decrease limit. The limit is lowered by a constant ratio when an execution is
+ * dropped or its round trip time exceeds the latency threshold and raised by one while at least half of it is used.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class AimdLimit extends AdaptiveLimit {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final long latencyThreshold;
+
+    /**
+     * @param latencyThreshold Round trip time in nanoseconds above which executions count as dropped, 0 to only
+     *                         count timeouts and rejections
+     */
+    public AimdLimit(int minLimit, int maxLimit, long latencyThreshold, IntConsumer limitListener) {
+        super(minLimit, maxLimit, limitListener);
+        this.latencyThreshold = latencyThreshold;
+    }
+
+    @Override
+    protected double update(double estimatedLimit, long rtt, int inFlight, boolean dropped) {
+
+        if (dropped || (latencyThreshold > 0 && rtt > latencyThreshold)) {
+            return estimatedLimit * BACKOFF_RATIO;
+        }
+
+        if (inFlight * 2 >= estimatedLimit) {
+            return estimatedLimit + 1;
+        }
+
+        return estimatedLimit;
+    }
+}
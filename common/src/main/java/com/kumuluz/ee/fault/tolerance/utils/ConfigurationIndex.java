@@ -0,0 +1,160 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import com.kumuluz.ee.configuration.ConfigurationListener;
+import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
+import com.kumuluz.ee.fault.tolerance.models.ConfigurationProperty;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Index of configuration values in the fault tolerance configuration subtree. Values of key paths that can be
+ * enumerated are resolved in a single pass over the subtree, other key paths (e.g. environment variables, which cannot
+ * be enumerated) are resolved on first lookup. Resolved values are kept up to date from configuration change events,
+ * so that resolving a property in the command, group and global hierarchy queries the configuration sources at most
+ * once per key path.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class ConfigurationIndex {
+
+    private static final Logger log = Logger.getLogger(ConfigurationIndex.class.getName());
+
+    private final String root;
+    private final Map<String, Optional<String>> resolvedValues;
+    private final Set<String> watchedPaths;
+    private final ConfigurationListener listener;
+
+    private ConfigurationUtil configUtil;
+
+    public ConfigurationIndex(String root, Collection<String> watchedPaths) {
+        this.root = root;
+        this.resolvedValues = new ConcurrentHashMap<>();
+        this.watchedPaths = (watchedPaths == null) ? null : new HashSet<>(watchedPaths);
+        this.listener = this::onChange;
+    }
+
+    /**
+     * Resolves values of all enumerable key paths in the configuration subtree and subscribes to their changes
+     *
+     * @param configUtil Configuration util to index
+     */
+    public void initialize(ConfigurationUtil configUtil) {
+
+        long start = System.nanoTime();
+
+        this.configUtil = configUtil;
+
+        indexSubtree(root);
+        configUtil.subscribe(root, listener);
+
+        log.finest("Indexed " + resolvedValues.size() + " configuration key paths in " +
+                (System.nanoTime() - start) / 1000000 + " ms.");
+    }
+
+    public void destroy(ConfigurationUtil configUtil) {
+        configUtil.unsubscribe(listener);
+    }
+
+    /**
+     * Returns configured value of the key path. Key paths which were not indexed are resolved from the configuration
+     * sources and indexed.
+     *
+     * @param keyPath Full key path
+     * @return Configured value or empty if key path is not configured
+     */
+    public Optional<String> get(String keyPath) {
+        return resolvedValues.computeIfAbsent(keyPath, configUtil::get);
+    }
+
+    /**
+     * Checks if property is watched. Property is watched if its key path ends with one of the watched paths or if
+     * watched paths were not specified.
+     *
+     * @param property ConfigurationProperty object to check
+     * @return True if property is watched, false otherwise
+     */
+    public boolean isWatched(ConfigurationProperty property) {
+
+        if (watchedPaths == null) {
+            return true;
+        }
+
+        String configPath = property.configurationPath();
+
+        for (int idx = configPath.indexOf('.'); idx >= 0; idx = configPath.indexOf('.', idx + 1)) {
+            if (watchedPaths.contains(configPath.substring(idx + 1))) {
+                return true;
+            }
+        }
+
+        return watchedPaths.contains(configPath);
+    }
+
+    private void indexSubtree(String keyPath) {
+
+        Optional<List<String>> mapKeys = configUtil.getMapKeys(keyPath);
+
+        if (mapKeys.isPresent() && !mapKeys.get().isEmpty()) {
+            for (String key : mapKeys.get()) {
+                indexSubtree(keyPath + "." + key);
+            }
+        } else {
+            resolvedValues.put(keyPath, configUtil.get(keyPath));
+        }
+    }
+
+    private void onChange(String key, String value) {
+
+        if (!key.startsWith(root + ".")) {
+            return;
+        }
+
+        // changed key may be reported in a different form than it was looked up in (e.g. environment variables)
+        String normalizedKey = normalize(key);
+
+        resolvedValues.put(key, configUtil.get(key));
+        for (String keyPath : resolvedValues.keySet()) {
+            if (!keyPath.equals(key) && normalize(keyPath).equals(normalizedKey)) {
+                resolvedValues.put(keyPath, configUtil.get(keyPath));
+            }
+        }
+    }
+
+    private static String normalize(String keyPath) {
+
+        StringBuilder sb = new StringBuilder(keyPath.length());
+
+        for (int i = 0; i < keyPath.length(); i++) {
+            char c = keyPath.charAt(i);
+
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+            }
+        }
+
+        return sb.toString();
+    }
+}
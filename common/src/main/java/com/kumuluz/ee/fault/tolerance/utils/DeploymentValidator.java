@@ -20,15 +20,20 @@
  */
 package com.kumuluz.ee.fault.tolerance.utils;
 
+import com.kumuluz.ee.fault.tolerance.annotations.CacheResult;
+import com.kumuluz.ee.fault.tolerance.annotations.Collapse;
+import com.kumuluz.ee.fault.tolerance.annotations.Hedge;
 import com.kumuluz.ee.fault.tolerance.config.IsEnabledConfig;
 import org.eclipse.microprofile.faulttolerance.*;
 import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceDefinitionException;
 
 import javax.enterprise.event.Observes;
 import javax.enterprise.inject.spi.*;
+import javax.interceptor.Interceptor;
 import java.lang.reflect.Method;
 import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
@@ -65,6 +70,19 @@ public class DeploymentValidator implements Extension {
             validateBulkhead(type, null);
         }
 
+        if (type.isAnnotationPresent(Hedge.class)) {
+            validateHedge(type, null);
+        }
+
+        if (type.isAnnotationPresent(CacheResult.class)) {
+            validateCacheResult(type, null);
+        }
+
+        // interceptor of the annotation is bound with it
+        if (type.isAnnotationPresent(Collapse.class) && !type.isAnnotationPresent(Interceptor.class)) {
+            throwDefinitionException(type, null, "Collapse can only be used on methods.");
+        }
+
         for (AnnotatedMethod<? super T> method : anType.getAnnotatedType().getMethods()) {
 
             if (method.isAnnotationPresent(Asynchronous.class)) {
@@ -90,6 +108,18 @@ public class DeploymentValidator implements Extension {
             if (method.isAnnotationPresent(Bulkhead.class)) {
                 validateBulkhead(type, method);
             }
+
+            if (method.isAnnotationPresent(Hedge.class)) {
+                validateHedge(type, method);
+            }
+
+            if (method.isAnnotationPresent(Collapse.class)) {
+                validateCollapse(type, method);
+            }
+
+            if (method.isAnnotationPresent(CacheResult.class)) {
+                validateCacheResult(type, method);
+            }
         }
     }
 
@@ -244,9 +274,77 @@ public class DeploymentValidator implements Extension {
         }
     }
 
+    private <T> void validateHedge(AnnotatedType<T> type, AnnotatedMethod<? super T> method) {
+        Hedge hedge = (method == null) ? type.getAnnotation(Hedge.class) : method.getAnnotation(Hedge.class);
+
+        if (hedge.delay() < 0) {
+            throwDefinitionException(type, method, "Hedge delay parameter must be greater than or equal to 0.");
+        }
+        if (hedge.percentile() < 0.0 || hedge.percentile() >= 1.0) {
+            throwDefinitionException(type, method, "Hedge percentile parameter must be greater than or equal to " +
+                    "0.0 and less than 1.0.");
+        }
+        if (method != null && !method.isAnnotationPresent(Asynchronous.class) &&
+                !type.isAnnotationPresent(Asynchronous.class)) {
+            throwDefinitionException(type, method, "Hedge can only be used on asynchronous methods.");
+        }
+    }
+
+    private <T> void validateCollapse(AnnotatedType<T> type, AnnotatedMethod<? super T> method) {
+        Collapse collapse = method.getAnnotation(Collapse.class);
+
+        if (collapse.batchMethod().isEmpty()) {
+            throwDefinitionException(type, method, "Collapse batchMethod parameter must be set.");
+        }
+        if (collapse.window() < 0) {
+            throwDefinitionException(type, method, "Collapse window parameter must be greater than or equal to 0.");
+        }
+        if (collapse.maxBatchSize() < 1) {
+            throwDefinitionException(type, method, "Collapse maxBatchSize parameter must be greater than or equal " +
+                    "to 1.");
+        }
+        if (method.getJavaMember().getParameterCount() != 1) {
+            throwDefinitionException(type, method, "Method annotated with @Collapse must have exactly one " +
+                    "parameter.");
+        }
+        if (!method.isAnnotationPresent(Asynchronous.class) && !type.isAnnotationPresent(Asynchronous.class)) {
+            throwDefinitionException(type, method, "Collapse can only be used on asynchronous methods.");
+        }
+    }
+
+    private <T> void validateCacheResult(AnnotatedType<T> type, AnnotatedMethod<? super T> method) {
+        CacheResult cacheResult = (method == null) ? type.getAnnotation(CacheResult.class) :
+                method.getAnnotation(CacheResult.class);
+
+        if (cacheResult.ttl() <= 0) {
+            throwDefinitionException(type, method, "CacheResult ttl parameter must be greater than 0.");
+        }
+        if (cacheResult.maxSize() < 1) {
+            throwDefinitionException(type, method, "CacheResult maxSize parameter must be greater than or equal " +
+                    "to 1.");
+        }
+        if (cacheResult.refreshAfter() < 0) {
+            throwDefinitionException(type, method, "CacheResult refreshAfter parameter must be greater than or " +
+                    "equal to 0.");
+        }
+        if (cacheResult.refreshAfter() > 0 &&
+                Duration.of(cacheResult.refreshAfter(), cacheResult.refreshAfterUnit())
+                        .compareTo(Duration.of(cacheResult.ttl(), cacheResult.ttlUnit())) >= 0) {
+            throwDefinitionException(type, method, "CacheResult refreshAfter parameter must be less than ttl.");
+        }
+        if (method != null && method.getJavaMember().getReturnType().equals(Void.TYPE)) {
+            throwDefinitionException(type, method, "CacheResult can not be used on methods without a result.");
+        }
+    }
+
     private <T> void validateAsynchronous(AnnotatedType<T> type, AnnotatedMethod<? super T> method) {
-        if (method != null && !method.getJavaMember().getReturnType().isAssignableFrom(Future.class)) {
-            throwDefinitionException(type, method, "Method annotated with @Asynchronous must return a Future.");
+        if (method != null) {
+            Class<?> returnType = method.getJavaMember().getReturnType();
+
+            if (!returnType.isAssignableFrom(Future.class) && !returnType.equals(CompletionStage.class)) {
+                throwDefinitionException(type, method,
+                        "Method annotated with @Asynchronous must return a Future or a CompletionStage.");
+            }
         }
     }
 
@@ -0,0 +1,120 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import org.eclipse.microprofile.faulttolerance.ExecutionContext;
+import org.eclipse.microprofile.faulttolerance.FallbackHandler;
+
+import javax.enterprise.context.spi.CreationalContext;
+import javax.enterprise.inject.UnsatisfiedResolutionException;
+import javax.enterprise.inject.spi.Bean;
+import javax.enterprise.inject.spi.BeanManager;
+import javax.enterprise.inject.spi.CDI;
+
+/**
+ * Resolves the bean of a {@link FallbackHandler} class once and serves handler instances from it.
+ *
+ * Handlers with a normal scope are shared through their client proxy. Handlers with a pseudo-scope (e.g. Dependent)
+ * are created from the resolved bean for every invocation and destroyed after it, as before.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class FallbackHandlerProvider {
+
+    private final Class<? extends FallbackHandler> handlerClass;
+
+    private volatile ResolvedHandler resolvedHandler;
+
+    public FallbackHandlerProvider(Class<? extends FallbackHandler> handlerClass) {
+        this.handlerClass = handlerClass;
+    }
+
+    public Class<? extends FallbackHandler> getHandlerClass() {
+        return handlerClass;
+    }
+
+    public Object handle(ExecutionContext executionContext) {
+
+        ResolvedHandler resolved = getResolvedHandler();
+
+        if (resolved.sharedHandler != null) {
+            return resolved.sharedHandler.handle(executionContext);
+        }
+
+        CreationalContext<?> creationalContext = resolved.beanManager.createCreationalContext(resolved.bean);
+
+        try {
+            FallbackHandler<?> handler = (FallbackHandler<?>) resolved.beanManager.getReference(resolved.bean,
+                    handlerClass, creationalContext);
+
+            return handler.handle(executionContext);
+        } finally {
+            creationalContext.release();
+        }
+    }
+
+    private ResolvedHandler getResolvedHandler() {
+
+        ResolvedHandler resolved = resolvedHandler;
+
+        // resolution is idempotent, concurrent first invocations may resolve the bean more than once
+        if (resolved == null) {
+            resolved = resolve();
+            resolvedHandler = resolved;
+        }
+
+        return resolved;
+    }
+
+    private ResolvedHandler resolve() {
+
+        BeanManager beanManager = CDI.current().getBeanManager();
+        Bean<?> bean = beanManager.resolve(beanManager.getBeans(handlerClass));
+
+        if (bean == null) {
+            throw new UnsatisfiedResolutionException("FallbackHandler '" + handlerClass.getName() +
+                    "' is not a bean.");
+        }
+
+        FallbackHandler<?> sharedHandler = null;
+
+        if (beanManager.isNormalScope(bean.getScope())) {
+            sharedHandler = (FallbackHandler<?>) beanManager.getReference(bean, handlerClass,
+                    beanManager.createCreationalContext(bean));
+        }
+
+        return new ResolvedHandler(beanManager, bean, sharedHandler);
+    }
+
+    private static class ResolvedHandler {
+
+        private final BeanManager beanManager;
+        private final Bean<?> bean;
+        private final FallbackHandler<?> sharedHandler;
+
+        private ResolvedHandler(BeanManager beanManager, Bean<?> bean, FallbackHandler<?> sharedHandler) {
+            this.beanManager = beanManager;
+            this.bean = bean;
+            this.sharedHandler = sharedHandler;
+        }
+    }
+}
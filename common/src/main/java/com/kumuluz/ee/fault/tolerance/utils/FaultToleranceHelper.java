@@ -22,9 +22,12 @@ package com.kumuluz.ee.fault.tolerance.utils;
 
 import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
 
+import java.lang.reflect.Method;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
 import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * Helper class for fault tolerance.
@@ -37,15 +40,45 @@ public class FaultToleranceHelper {
     private static final Logger log = Logger.getLogger(FaultToleranceHelper.class.getName());
 
     public static String getBaseConfigPath(String commandKey, String groupKey, FaultToleranceType type) {
-        return String.format("%s.%s.%s.%s", FaultToleranceUtilImpl.SERVICE_NAME, groupKey, commandKey, type.getKey());
+        return FaultToleranceUtilImpl.SERVICE_NAME + "." + groupKey + "." + commandKey + "." + type.getKey();
     }
 
     public static String getBaseConfigPath(String groupKey, FaultToleranceType type) {
-        return String.format("%s.%s.%s", FaultToleranceUtilImpl.SERVICE_NAME, groupKey, type.getKey());
+        return FaultToleranceUtilImpl.SERVICE_NAME + "." + groupKey + "." + type.getKey();
     }
 
     public static String getBaseConfigPath(FaultToleranceType type) {
-        return String.format("%s.%s", FaultToleranceUtilImpl.SERVICE_NAME, type.getKey());
+        return FaultToleranceUtilImpl.SERVICE_NAME + "." + type.getKey();
+    }
+
+    /**
+     * Returns method name used in metric names. Overloaded methods are distinguished by their parameter types,
+     * e.g. <code>find_String_int</code>, methods without parameters keep their name.
+     *
+     * @param targetClass Class declaring or inheriting the method
+     * @param method      Method
+     * @return Method name used in metric names
+     */
+    public static String getMetricsMethodName(Class<?> targetClass, Method method) {
+
+        if (method.getParameterCount() == 0 || !isOverloaded(targetClass, method)) {
+            return method.getName();
+        }
+
+        StringBuilder name = new StringBuilder(method.getName());
+
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            name.append('_').append(parameterType.getSimpleName().replace("[]", "Array"));
+        }
+
+        return name.toString();
+    }
+
+    private static boolean isOverloaded(Class<?> targetClass, Method method) {
+
+        return Stream.concat(Arrays.stream(targetClass.getMethods()), Arrays.stream(targetClass.getDeclaredMethods()))
+                .anyMatch(m -> m.getName().equals(method.getName()) &&
+                        !Arrays.equals(m.getParameterTypes(), method.getParameterTypes()));
     }
 
     public static Duration parseDuration(String str) {
@@ -22,9 +22,14 @@ package com.kumuluz.ee.fault.tolerance.utils;
 
 import com.kumuluz.ee.configuration.ConfigurationListener;
 import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
+import com.kumuluz.ee.fault.tolerance.annotations.CacheResult;
+import com.kumuluz.ee.fault.tolerance.annotations.Collapse;
 import com.kumuluz.ee.fault.tolerance.annotations.CommandKey;
 import com.kumuluz.ee.fault.tolerance.annotations.GroupKey;
+import com.kumuluz.ee.fault.tolerance.annotations.Hedge;
+import com.kumuluz.ee.fault.tolerance.config.IsEnabledConfig;
 import com.kumuluz.ee.fault.tolerance.config.MicroprofileConfigUtil;
+import com.kumuluz.ee.fault.tolerance.enums.BulkheadType;
 import com.kumuluz.ee.fault.tolerance.enums.CircuitBreakerType;
 import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
 import com.kumuluz.ee.fault.tolerance.interfaces.FaultToleranceExecutor;
@@ -39,12 +44,20 @@ import org.jboss.weld.context.RequestContext;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
+import javax.annotation.Priority;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Initialized;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.interceptor.Interceptor;
 import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.*;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -61,14 +74,19 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
     private static final Logger log = Logger.getLogger(FaultToleranceUtilImpl.class.getName());
 
     public static final String SERVICE_NAME = "fault-tolerance";
-    private static final int CONFIG_WATCH_QUEUE_UPDATE_LIMIT = 50;
+    private static final String CONFIG_UPDATE_THREAD_NAME = "kumuluzee-fault-tolerance-config";
 
     private Boolean watchEnabled;
-    private List<String> watchProperties;
+    private ConfigurationIndex configurationIndex;
 
     private Map<String, ExecutionMetadata> metadatasMap;
+    private ClassValue<Map<Method, ExecutionMetadata>> metadatasByClass;
+    private Map<Class<? extends FallbackHandler>, FallbackHandlerProvider> fallbackHandlerProviders;
     private Map<String, ConfigurationListener> configListenersMap;
-    private Queue<ConfigurationProperty> updatePropertiesQueue;
+    private Queue<ConfigurationUpdate> updatePropertiesQueue;
+    private AtomicBoolean configUpdateScheduled;
+    private ExecutorService configUpdateExecutor;
+    private ConfigMetricsCollection configMetricsCollection;
 
     @Inject
     private FaultToleranceExecutor executor;
@@ -79,23 +97,91 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
     @Inject
     private MetricsUtil metricsUtil;
 
+    @Inject
+    private MetadataPrecompiler metadataPrecompiler;
+
     @PostConstruct
     public void init() {
 
         metadatasMap = new HashMap<>();
-        updatePropertiesQueue = new LinkedList<>();
-        configListenersMap = new HashMap<>();
+        metadatasByClass = new ClassValue<Map<Method, ExecutionMetadata>>() {
+            @Override
+            protected Map<Method, ExecutionMetadata> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<>();
+            }
+        };
+        fallbackHandlerProviders = new ConcurrentHashMap<>();
+        updatePropertiesQueue = new ConcurrentLinkedQueue<>();
+        configUpdateScheduled = new AtomicBoolean(false);
+        // thread is started with the first received update
+        configUpdateExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, CONFIG_UPDATE_THREAD_NAME);
+            thread.setDaemon(true);
+            return thread;
+        });
+        configListenersMap = new ConcurrentHashMap<>();
 
         ConfigurationUtil configUtil = ConfigurationUtil.getInstance();
 
         Optional<Boolean> watchEnabledOptional = configUtil.getBoolean(SERVICE_NAME + ".config.watch-enabled");
         watchEnabled = watchEnabledOptional.orElse(null);
 
+        List<String> watchProperties = null;
         if (watchEnabled == null || watchEnabled) {
             Optional<String> watchPropertiesOptional = configUtil.get(SERVICE_NAME + ".config.watch-properties");
 
-            watchPropertiesOptional.ifPresent(s -> watchProperties = Arrays.asList(s.split(",")));
+            if (watchPropertiesOptional.isPresent()) {
+                watchProperties = new ArrayList<>();
+
+                for (String watchProperty : watchPropertiesOptional.get().split(",")) {
+                    watchProperties.add(watchProperty.trim());
+                }
+            }
         }
+
+        configurationIndex = new ConfigurationIndex(SERVICE_NAME, watchProperties);
+        configurationIndex.initialize(configUtil);
+    }
+
+    /**
+     * Initializes execution metadata and executor state for all methods discovered during deployment. Observer
+     * priority ensures metrics registry is already initialized.
+     *
+     * @param init Application scope initialization event
+     */
+    public void precompile(@Observes @Priority(Interceptor.Priority.LIBRARY_AFTER)
+                           @Initialized(ApplicationScoped.class) Object init) {
+
+        if (!IsEnabledConfig.isEnabled()) {
+            return;
+        }
+
+        metricsUtil.getRegistry().ifPresent(registry -> {
+            configMetricsCollection = new ConfigMetricsCollection(registry);
+            configMetricsCollection.setMetricsPrefix("ft.");
+            configMetricsCollection.initialize();
+        });
+
+        long start = System.nanoTime();
+        int precompiled = 0;
+
+        for (Map.Entry<Class<?>, List<Method>> entry : metadataPrecompiler.getDiscoveredMethods().entrySet()) {
+            for (Method method : entry.getValue()) {
+                try {
+                    ExecutionMetadata metadata = initExecutionMetadata(entry.getKey(), method);
+                    executor.initialize(metadata);
+                    metadatasByClass.get(entry.getKey()).put(method, metadata);
+                    precompiled++;
+                } catch (RuntimeException e) {
+                    log.log(Level.WARNING, "Fault tolerance for method '" + entry.getKey().getName() + "#" +
+                            method.getName() + "' could not be initialized during deployment, initialization " +
+                            "will be retried on first invocation.", e);
+                }
+            }
+        }
+
+        log.info("Fault tolerance initialized for " + precompiled + " methods in " +
+                (System.nanoTime() - start) / 1000000 + " ms.");
     }
 
     @PreDestroy
@@ -104,6 +190,8 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         ConfigurationUtil configUtil = ConfigurationUtil.getInstance();
 
         configListenersMap.values().forEach(configUtil::unsubscribe);
+        configurationIndex.destroy(configUtil);
+        configUpdateExecutor.shutdownNow();
     }
 
     /**
@@ -119,8 +207,6 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
 
         ExecutionMetadata config = toExecutionMetadata(invocationContext);
 
-        updateConfigurations();
-
         return executor.execute(invocationContext, requestContext, config);
     }
 
@@ -133,9 +219,7 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
     @Override
     public boolean isWatchEnabled(ConfigurationProperty property) {
 
-        String configPath = property.configurationPath();
-        return watchEnabled != null && watchEnabled &&
-                watchProperties.stream().anyMatch(configPath::endsWith);
+        return watchEnabled != null && watchEnabled && configurationIndex.isWatched(property);
     }
 
     /**
@@ -175,7 +259,8 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
                     }
 
                     if (valueParsed) {
-                        updatePropertiesQueue.add(updatedProperty);
+                        updatePropertiesQueue.add(new ConfigurationUpdate(updatedProperty, System.nanoTime()));
+                        scheduleConfigurationUpdate();
                     } else {
                         log.warning("Parsing of configuration property value '" +
                                 updatedValue + "' for key '" + updatedKey + "' failed.");
@@ -209,16 +294,48 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
     }
 
     /**
-     * Updates received updated configurations for watched configuration properties
+     * Schedules application of received configuration updates on the config update thread, unless already scheduled
+     */
+    private void scheduleConfigurationUpdate() {
+
+        if (configUpdateScheduled.compareAndSet(false, true)) {
+            try {
+                configUpdateExecutor.execute(() -> {
+                    // updates received from now on schedule another run
+                    configUpdateScheduled.set(false);
+                    updateConfigurations();
+                });
+            } catch (RejectedExecutionException e) {
+                log.finest("Configuration update rejected, fault tolerance is shutting down.");
+            }
+        }
+    }
+
+    /**
+     * Updates received updated configurations for watched configuration properties. Multiple updates of the same
+     * property are coalesced, only the latest value is applied.
      */
     @Override
-    public void updateConfigurations() {
+    public synchronized void updateConfigurations() {
+
+        Map<String, ConfigurationUpdate> batch = new LinkedHashMap<>();
 
-        int cnt = 0;
-        while (updatePropertiesQueue.peek() != null && cnt < CONFIG_WATCH_QUEUE_UPDATE_LIMIT) {
-            ConfigurationProperty prop = updatePropertiesQueue.poll();
-            executor.setPropertyValue(prop);
-            cnt++;
+        ConfigurationUpdate update;
+        while ((update = updatePropertiesQueue.poll()) != null) {
+            batch.merge(update.getProperty().configurationPath(), update, ConfigurationUpdate::coalesce);
+        }
+
+        for (ConfigurationUpdate batchUpdate : batch.values()) {
+            try {
+                executor.setPropertyValue(batchUpdate.getProperty());
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Configuration update for key '" +
+                        batchUpdate.getProperty().configurationPath() + "' could not be applied.", e);
+            }
+
+            if (configMetricsCollection != null) {
+                configMetricsCollection.getUpdateDelay().update(System.nanoTime() - batchUpdate.getReceivedAt());
+            }
         }
     }
 
@@ -235,18 +352,17 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
     @Override
     public Optional<ConfigurationProperty> findConfig(String commandKey, String groupKey, FaultToleranceType type, String propertyPath) {
 
-        log.finest("Searching configuration for '" + commandKey + "', '" + groupKey + "', '" + type.getKey() +
-                "', '" + propertyPath + "'.");
-        ConfigurationUtil configUtil = ConfigurationUtil.getInstance();
+        if (log.isLoggable(Level.FINEST)) {
+            log.finest("Searching configuration for '" + commandKey + "', '" + groupKey + "', '" + type.getKey() +
+                    "', '" + propertyPath + "'.");
+        }
 
         ConfigurationProperty resultProperty = null;
-        Optional<String> value;
 
         if (commandKey != null && groupKey != null) {
             resultProperty = new ConfigurationProperty(commandKey, groupKey, type, propertyPath);
-            value = configUtil.get(resultProperty.configurationPath());
 
-            if (value.isPresent()) {
+            if (isConfigured(resultProperty.configurationPath())) {
                 log.finest("Found configuration at path '" + resultProperty.configurationPath() + "'.");
 
                 return Optional.of(resultProperty);
@@ -255,9 +371,8 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
 
         if (commandKey == null && groupKey != null || resultProperty != null) {
             resultProperty = new ConfigurationProperty(groupKey, type, propertyPath);
-            value = configUtil.get(resultProperty.configurationPath());
 
-            if (value.isPresent()) {
+            if (isConfigured(resultProperty.configurationPath())) {
                 log.finest("Found configuration at path '" + resultProperty.configurationPath() + "'.");
 
                 return Optional.of(resultProperty);
@@ -266,9 +381,8 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
 
         if (commandKey == null && groupKey == null || resultProperty != null) {
             resultProperty = new ConfigurationProperty(type, propertyPath);
-            value = configUtil.get(resultProperty.configurationPath());
 
-            if (value.isPresent()) {
+            if (isConfigured(resultProperty.configurationPath())) {
                 log.finest("Found configuration at path '" + resultProperty.configurationPath() + "'.");
 
                 return Optional.of(resultProperty);
@@ -280,25 +394,60 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         return Optional.empty();
     }
 
+    private boolean isConfigured(String configPath) {
+        return configurationIndex.get(configPath).isPresent();
+    }
+
     /**
-     * Creates ExecutionMetadata object with execution info from invocation context or retreives it
-     * from map if exists already
+     * Retrieves ExecutionMetadata object with execution info for invocation context. Lookup of already initialized
+     * metadata is lock-free, only the first invocation of each method of each target class initializes it. Metadata
+     * precompiled during deployment is registered for the bean class and resolved from there for its proxied
+     * subclass, so it is never initialized on invocation.
      *
      * @param ic InvocationContext associated with the execution
      * @return ExecutionMetadata object with execution info
      */
-    public synchronized ExecutionMetadata toExecutionMetadata(InvocationContext ic) {
+    public ExecutionMetadata toExecutionMetadata(InvocationContext ic) {
 
         Method targetMethod = ic.getMethod();
-        Object targetObject = ic.getTarget();
-        Class<?> targetClass = targetObject.getClass();
+        Class<?> targetClass = ic.getTarget().getClass();
+        Map<Method, ExecutionMetadata> classMetadatas = metadatasByClass.get(targetClass);
+
+        ExecutionMetadata metadata = classMetadatas.get(targetMethod);
+
+        if (metadata == null) {
+            if (targetClassIsProxied(targetClass)) {
+                metadata = metadatasByClass.get(targetClass.getSuperclass()).get(targetMethod);
+            }
+
+            if (metadata == null) {
+                metadata = initExecutionMetadata(targetClass, targetMethod);
+            }
+
+            classMetadatas.put(targetMethod, metadata);
+        }
+
+        return metadata;
+    }
+
+    /**
+     * Creates ExecutionMetadata object with execution info for target class and method or retrieves it
+     * from map if exists already
+     *
+     * @param targetClass  Execution target class, possibly proxied
+     * @param targetMethod Execution target method
+     * @return ExecutionMetadata object with execution info
+     */
+    private synchronized ExecutionMetadata initExecutionMetadata(Class<?> targetClass, Method targetMethod) {
 
         if (targetClassIsProxied(targetClass))
             targetClass = targetClass.getSuperclass();
 
         String commandKey = getCommandKey(targetClass, targetMethod);
         String groupKey = getGroupKey(targetClass, targetMethod);
-        String key = groupKey + "." + commandKey;
+        // overloaded methods share the command, but are executed with their own metadata and metrics
+        String key = groupKey + "." + commandKey + "#" + FaultToleranceHelper.getMetricsMethodName(targetClass,
+                targetMethod);
 
         if (metadatasMap.containsKey(key))
             return metadatasMap.get(key);
@@ -313,6 +462,9 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         Fallback fallback = null;
         Retry retry = null;
         CircuitBreaker circuitBreaker = null;
+        Hedge hedge = null;
+        Collapse collapse = targetMethod.getAnnotation(Collapse.class);
+        CacheResult cacheResult = null;
 
         boolean isAsync = false;
         // check for asynchronous annotation
@@ -326,16 +478,16 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         if (targetMethod.isAnnotationPresent(Bulkhead.class)) {
             bulkhead = microprofileConfigUtil.configOverriddenBulkhead(targetClass, targetMethod, targetMethod.getAnnotation(Bulkhead.class));
             if (metricRegistry.isPresent()) {
-                metadata.addCommonMetricsCollection(targetMethod, new CommonMetricsCollection(metricRegistry.get()));
-                metadata.addBulkheadMetricsCollection(targetMethod, new BulkheadMetricsCollection(metricRegistry.get(), isAsync));
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setBulkheadMetricsCollection(new BulkheadMetricsCollection(metricRegistry.get(),
+                        metricsUtil.getHistogramFactory(), isAsync));
             }
         } else if (targetClass.isAnnotationPresent(Bulkhead.class)) {
             bulkhead = microprofileConfigUtil.configOverriddenBulkhead(targetClass, null, targetClass.getAnnotation(Bulkhead.class));
             if (metricRegistry.isPresent()) {
-                for (Method method : targetClass.getMethods()) {
-                    metadata.addCommonMetricsCollection(method, new CommonMetricsCollection(metricRegistry.get()));
-                    metadata.addBulkheadMetricsCollection(method, new BulkheadMetricsCollection(metricRegistry.get(), isAsync));
-                }
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setBulkheadMetricsCollection(new BulkheadMetricsCollection(metricRegistry.get(),
+                        metricsUtil.getHistogramFactory(), isAsync));
             }
         }
 
@@ -343,16 +495,16 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         if (targetMethod.isAnnotationPresent(Timeout.class)) {
             timeout = microprofileConfigUtil.configOverriddenTimeout(targetClass, targetMethod, targetMethod.getAnnotation(Timeout.class));
             if (metricRegistry.isPresent()) {
-                metadata.addCommonMetricsCollection(targetMethod, new CommonMetricsCollection(metricRegistry.get()));
-                metadata.addTimeoutMetricsCollection(targetMethod, new TimeoutMetricsCollection(metricRegistry.get()));
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setTimeoutMetricsCollection(new TimeoutMetricsCollection(metricRegistry.get(),
+                        metricsUtil.getHistogramFactory()));
             }
         } else if (targetClass.isAnnotationPresent(Timeout.class)) {
             timeout = microprofileConfigUtil.configOverriddenTimeout(targetClass, null, targetClass.getAnnotation(Timeout.class));
             if (metricRegistry.isPresent()) {
-                for (Method method : targetClass.getMethods()) {
-                    metadata.addCommonMetricsCollection(method, new CommonMetricsCollection(metricRegistry.get()));
-                    metadata.addTimeoutMetricsCollection(method, new TimeoutMetricsCollection(metricRegistry.get()));
-                }
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setTimeoutMetricsCollection(new TimeoutMetricsCollection(metricRegistry.get(),
+                        metricsUtil.getHistogramFactory()));
             }
         }
 
@@ -360,16 +512,14 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         if (targetMethod.isAnnotationPresent(Fallback.class)) {
             fallback = microprofileConfigUtil.configOverriddenFallback(targetClass, targetMethod, targetMethod.getAnnotation(Fallback.class));
             if (metricRegistry.isPresent()) {
-                metadata.addCommonMetricsCollection(targetMethod, new CommonMetricsCollection(metricRegistry.get()));
-                metadata.addFallbackMetricsCollection(targetMethod, new FallbackMetricsCollection(metricRegistry.get()));
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setFallbackMetricsCollection(new FallbackMetricsCollection(metricRegistry.get()));
             }
         } else if (targetClass.isAnnotationPresent(Fallback.class)) {
             fallback = microprofileConfigUtil.configOverriddenFallback(targetClass, null, targetClass.getAnnotation(Fallback.class));
             if (metricRegistry.isPresent()) {
-                for (Method method : targetClass.getMethods()) {
-                    metadata.addCommonMetricsCollection(method, new CommonMetricsCollection(metricRegistry.get()));
-                    metadata.addFallbackMetricsCollection(method, new FallbackMetricsCollection(metricRegistry.get()));
-                }
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setFallbackMetricsCollection(new FallbackMetricsCollection(metricRegistry.get()));
             }
         }
 
@@ -377,16 +527,14 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         if (targetMethod.isAnnotationPresent(Retry.class)) {
             retry = microprofileConfigUtil.configOverriddenRetry(targetClass, targetMethod, targetMethod.getAnnotation(Retry.class));
             if (metricRegistry.isPresent()) {
-                metadata.addCommonMetricsCollection(targetMethod, new CommonMetricsCollection(metricRegistry.get()));
-                metadata.addRetryMetricsCollection(targetMethod, new RetryMetricsCollection(metricRegistry.get()));
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setRetryMetricsCollection(new RetryMetricsCollection(metricRegistry.get()));
             }
         } else if (targetClass.isAnnotationPresent(Retry.class)) {
             retry = microprofileConfigUtil.configOverriddenRetry(targetClass, null, targetClass.getAnnotation(Retry.class));
             if (metricRegistry.isPresent()) {
-                for (Method method : targetClass.getMethods()) {
-                    metadata.addCommonMetricsCollection(method, new CommonMetricsCollection(metricRegistry.get()));
-                    metadata.addRetryMetricsCollection(method, new RetryMetricsCollection(metricRegistry.get()));
-                }
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setRetryMetricsCollection(new RetryMetricsCollection(metricRegistry.get()));
             }
         }
 
@@ -394,22 +542,55 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         if (targetMethod.isAnnotationPresent(CircuitBreaker.class)) {
             circuitBreaker = microprofileConfigUtil.configOverriddenCircuitBreaker(targetClass, targetMethod, targetMethod.getAnnotation(CircuitBreaker.class));
             if (metricRegistry.isPresent()) {
-                metadata.addCommonMetricsCollection(targetMethod, new CommonMetricsCollection(metricRegistry.get()));
-                metadata.addCbMetricsCollection(targetMethod, new CircuitBreakerMetricsCollection(metricRegistry.get()));
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setCbMetricsCollection(new CircuitBreakerMetricsCollection(metricRegistry.get()));
             }
         } else if (targetClass.isAnnotationPresent(CircuitBreaker.class)) {
             circuitBreaker = microprofileConfigUtil.configOverriddenCircuitBreaker(targetClass, null, targetClass.getAnnotation(CircuitBreaker.class));
             if (metricRegistry.isPresent()) {
-                for (Method method : targetClass.getMethods()) {
-                    metadata.addCommonMetricsCollection(method, new CommonMetricsCollection(metricRegistry.get()));
-                    metadata.addCbMetricsCollection(method, new CircuitBreakerMetricsCollection(metricRegistry.get()));
-                }
+                metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+                metadata.setCbMetricsCollection(new CircuitBreakerMetricsCollection(metricRegistry.get()));
             }
         }
 
-        if (isAsync && !targetMethod.getReturnType().equals(Future.class)) {
+        // check for hedge annotation
+        if (targetMethod.isAnnotationPresent(Hedge.class)) {
+            hedge = targetMethod.getAnnotation(Hedge.class);
+        } else if (targetClass.isAnnotationPresent(Hedge.class)) {
+            hedge = targetClass.getAnnotation(Hedge.class);
+        }
+
+        if (hedge != null && !isAsync) {
+            throw new FaultToleranceDefinitionException("Method annotated with @Hedge must be asynchronous.");
+        }
+
+        if (hedge != null && metricRegistry.isPresent()) {
+            metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+            metadata.setHedgeMetricsCollection(new HedgeMetricsCollection(metricRegistry.get()));
+        }
+
+        // check for cache result annotation
+        if (targetMethod.isAnnotationPresent(CacheResult.class)) {
+            cacheResult = targetMethod.getAnnotation(CacheResult.class);
+        } else if (targetClass.isAnnotationPresent(CacheResult.class) &&
+                !targetMethod.getReturnType().equals(Void.TYPE)) {
+            cacheResult = targetClass.getAnnotation(CacheResult.class);
+        }
+
+        if (cacheResult != null && metricRegistry.isPresent()) {
+            metadata.setCommonMetricsCollection(new CommonMetricsCollection(metricRegistry.get()));
+            metadata.setCacheMetricsCollection(new CacheMetricsCollection(metricRegistry.get()));
+        }
+
+        if (collapse != null && (!isAsync || targetMethod.getParameterCount() != 1)) {
+            throw new FaultToleranceDefinitionException("Method annotated with @Collapse must be asynchronous " +
+                    "and have exactly one parameter.");
+        }
+
+        if (isAsync && !targetMethod.getReturnType().equals(Future.class) &&
+                !targetMethod.getReturnType().equals(CompletionStage.class)) {
             throw new FaultToleranceDefinitionException("If target method is annotated with @Asynchronous " +
-                    "Future is expected to be method's return type.");
+                    "Future or CompletionStage is expected to be method's return type.");
         }
 
         Class<? extends FallbackHandler> fallbackHandlerClass = getFallbackHandlerClass(fallback, targetMethod);
@@ -422,12 +603,24 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
 
         metadata.setAsynchronous(isAsync);
         metadata.setFallbackHandlerClass(fallbackHandlerClass);
+        if (fallbackHandlerClass != null) {
+            metadata.setFallbackHandlerProvider(fallbackHandlerProviders.computeIfAbsent(fallbackHandlerClass,
+                    FallbackHandlerProvider::new));
+        }
         metadata.setFallbackMethod(fallbackMethod);
+        metadata.setFallbackMethodHandle(bindFallbackMethod(fallbackMethod));
 
         metadata.setBulkhead(bulkhead);
         metadata.setTimeout(timeout);
         metadata.setRetry(retry);
         metadata.setCircuitBreaker(circuitBreaker);
+        metadata.setHedge(hedge);
+        metadata.setCollapse(collapse);
+        metadata.setCacheResult(cacheResult);
+        metadata.setBatchMethodHandle(bindBatchMethod(getBatchMethod(collapse, targetClass), targetClass));
+        if (hedge != null || cacheResult != null) {
+            metadata.setTargetMethodHandle(bindTargetMethod(targetMethod, targetClass));
+        }
 
         if (circuitBreaker != null) {
             metadata.setCircuitBreakerSuccessThreshold(circuitBreaker.successThreshold());
@@ -449,11 +642,52 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
             metadata.setCircuitBreakerType(CircuitBreakerType.HYSTRIX);
         }
 
+        metadata.setBulkheadType(getBulkheadType(metadata));
+
         metadatasMap.put(key, metadata);
 
         return metadata;
     }
 
+    /**
+     * Determines bulkhead implementation from config. Semaphore bulkhead only limits concurrent executions, so it
+     * can only be used for synchronous methods without circuit breaker.
+     *
+     * @param metadata Execution metadata
+     * @return Bulkhead implementation type
+     */
+    private BulkheadType getBulkheadType(ExecutionMetadata metadata) {
+
+        if (metadata.getBulkhead() == null) {
+            return BulkheadType.HYSTRIX;
+        }
+
+        BulkheadType bulkheadType;
+
+        try {
+            bulkheadType = findConfig(
+                    metadata.getCommandKey(),
+                    metadata.getGroupKey(),
+                    FaultToleranceType.BULKHEAD,
+                    "bulkhead-type")
+                    .flatMap(cp -> ConfigurationUtil.getInstance().get(cp.configurationPath()))
+                    .map(configVal -> BulkheadType.valueOf(configVal.toUpperCase()))
+                    .orElse(BulkheadType.HYSTRIX);
+        } catch (IllegalArgumentException e) {
+            log.log(Level.SEVERE, "Could not determine bulkhead type from config, using HYSTRIX bulkhead.", e);
+            return BulkheadType.HYSTRIX;
+        }
+
+        if (bulkheadType == BulkheadType.SEMAPHORE && (metadata.isAsynchronous() ||
+                metadata.getCircuitBreaker() != null)) {
+            log.warning("SEMAPHORE bulkhead can not be used for command '" + metadata.getIdentifier() + "' since " +
+                    "it is asynchronous or uses circuit breaker, using HYSTRIX bulkhead.");
+            return BulkheadType.HYSTRIX;
+        }
+
+        return bulkheadType;
+    }
+
     /**
      * Constructs command key. By default target method is used. If @CommandKey annotation is present,
      * it's value is used instead.
@@ -585,6 +819,96 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         return null;
     }
 
+    /**
+     * Binds fallback method to a method handle, which accepts the target instance and an array of parameters
+     *
+     * @param fallbackMethod Fallback method
+     * @return Method handle of type (Object, Object[])Object or null if fallback method is not defined
+     */
+    private MethodHandle bindFallbackMethod(Method fallbackMethod) {
+
+        if (fallbackMethod == null)
+            return null;
+
+        try {
+            fallbackMethod.setAccessible(true);
+
+            return MethodHandles.lookup().unreflect(fallbackMethod)
+                    .asSpreader(Object[].class, fallbackMethod.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new FaultToleranceDefinitionException("FallbackMethod '" + fallbackMethod.getName() +
+                    "' on @Fallback could not be accessed.", e);
+        }
+    }
+
+    /**
+     * Finds the batch method of {@link Collapse}, which accepts a list of parameters and returns a list of results,
+     * either directly or as a result of a Future or CompletionStage
+     */
+    private Method getBatchMethod(Collapse collapse, Class targetClass) {
+
+        if (collapse == null)
+            return null;
+
+        for (Method m : targetClass.getMethods()) {
+            if (m.getName().equals(collapse.batchMethod()) && m.getParameterCount() == 1 &&
+                    m.getParameterTypes()[0].isAssignableFrom(List.class)) {
+
+                if (!List.class.isAssignableFrom(m.getReturnType()) && !m.getReturnType().equals(Future.class) &&
+                        !m.getReturnType().equals(CompletionStage.class)) {
+                    throw new FaultToleranceDefinitionException("BatchMethod on @Collapse should return a List, " +
+                            "a Future or a CompletionStage.");
+                }
+
+                return m;
+            }
+        }
+
+        throw new FaultToleranceDefinitionException("BatchMethod '" + collapse.batchMethod() + "' on @Collapse " +
+                "accepting a List of parameters was not found.");
+    }
+
+    private MethodHandle bindBatchMethod(Method batchMethod, Class targetClass) {
+
+        if (batchMethod == null)
+            return null;
+
+        try {
+            return bindNonVirtual(batchMethod, targetClass);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new FaultToleranceDefinitionException("BatchMethod '" + batchMethod.getName() +
+                    "' on @Collapse could not be accessed.", e);
+        }
+    }
+
+    private MethodHandle bindTargetMethod(Method targetMethod, Class targetClass) {
+
+        try {
+            return bindNonVirtual(targetMethod, targetClass);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            throw new FaultToleranceDefinitionException("Method '" + targetMethod.getName() +
+                    "' could not be accessed for invocations started by fault tolerance.", e);
+        }
+    }
+
+    /**
+     * Binds method implementation of the target class to a method handle, which accepts the target instance and an
+     * array of parameters. The handle invokes the implementation non-virtually, so invoking it on the intercepted
+     * subclass of the container does not intercept the invocation again.
+     *
+     * @param method      Method to bind
+     * @param targetClass Bean class declaring or inheriting the method
+     * @return Method handle of type (Object, Object[])Object
+     */
+    private MethodHandle bindNonVirtual(Method method, Class<?> targetClass) throws ReflectiveOperationException {
+        return MethodHandles.privateLookupIn(targetClass, MethodHandles.lookup())
+                .findSpecial(method.getDeclaringClass(), method.getName(),
+                        MethodType.methodType(method.getReturnType(), method.getParameterTypes()), targetClass)
+                .asSpreader(Object[].class, method.getParameterCount())
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+
     /**
      * Check if target class is proxied due to CDI use
      *
@@ -595,4 +919,32 @@ public class FaultToleranceUtilImpl implements FaultToleranceUtil {
         return targetClass.getCanonicalName().contains("$Proxy");
     }
 
+    /**
+     * Updated configuration property with the time it was received at
+     */
+    private static class ConfigurationUpdate {
+
+        private final ConfigurationProperty property;
+        private final long receivedAt;
+
+        ConfigurationUpdate(ConfigurationProperty property, long receivedAt) {
+            this.property = property;
+            this.receivedAt = receivedAt;
+        }
+
+        ConfigurationProperty getProperty() {
+            return property;
+        }
+
+        long getReceivedAt() {
+            return receivedAt;
+        }
+
+        /**
+         * Keeps the value of the later update and the receive time of the earlier one
+         */
+        static ConfigurationUpdate coalesce(ConfigurationUpdate earlier, ConfigurationUpdate later) {
+            return new ConfigurationUpdate(later.property, earlier.receivedAt);
+        }
+    }
 }
@@ -0,0 +1,65 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Limit following the gradient between the long and the short term average round trip time, in the style of TCP
+ * Vegas. While the short term average stays within the tolerance of the long term one the limit grows by its
+ * square root, the allowed queue, and it shrinks proportionally to the gradient when round trip times rise.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class GradientLimit extends AdaptiveLimit {
+
+    private static final double RTT_TOLERANCE = 1.5;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double SMOOTHING = 0.2;
+
+    public GradientLimit(int minLimit, int maxLimit, IntConsumer limitListener) {
+        super(minLimit, maxLimit, limitListener);
+    }
+
+    @Override
+    protected double update(double estimatedLimit, long rtt, int inFlight, boolean dropped) {
+
+        double shortRtt = getShortRttEstimate();
+        double longRtt = getLongRttEstimate();
+
+        // round trip times dropped for good, e.g. after a slow dependency recovered
+        if (longRtt / shortRtt > 2) {
+            decayLongRtt(0.95);
+        }
+
+        // the limit is not used, so the samples say nothing about it
+        if (!dropped && inFlight < estimatedLimit / 2) {
+            return estimatedLimit;
+        }
+
+        double gradient = dropped ? MIN_GRADIENT :
+                Math.max(MIN_GRADIENT, Math.min(1.0, RTT_TOLERANCE * longRtt / shortRtt));
+        double newLimit = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+
+        return estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Timer scheduling tasks in a wheel of buckets, each covering one tick. Scheduling appends the task to a lock-free
+ * queue and cancelling is a single compare-and-set, the worker thread moves scheduled tasks to their buckets and runs
+ * expired tasks once per tick. Tasks never run before their deadline, but may run up to one tick after it. While no
+ * tasks are scheduled, the worker thread is parked instead of ticking.
+ *
+ * Adapted from the hashed wheel timer of Netty.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HashedWheelTimer {
+
+    private static final Logger log = Logger.getLogger(HashedWheelTimer.class.getName());
+
+    private final String name;
+    private final long tickDuration;
+    private final int mask;
+    private final WheelTimeout[] wheel;
+
+    private final Queue<WheelTimeout> scheduledTimeouts = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean started = new AtomicBoolean();
+
+    private volatile long startTime;
+    private volatile Thread worker;
+    private volatile boolean idle;
+    private volatile boolean stopped;
+
+    // accessed only by the worker thread
+    private int wheelTimeouts;
+
+    /**
+     * @param name         Name of the worker thread
+     * @param tickDuration Duration of a tick
+     * @param unit         Unit of the tick duration
+     * @param ticksPerWheel Number of buckets, rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this.name = name;
+        this.tickDuration = unit.toNanos(tickDuration);
+
+        int wheelSize = Integer.highestOneBit(Math.max(1, ticksPerWheel - 1)) << 1;
+
+        this.mask = wheelSize - 1;
+        this.wheel = new WheelTimeout[wheelSize];
+    }
+
+    /**
+     * Schedules task to run on the worker thread after the delay. The worker thread is started with the first task.
+     *
+     * @param task  Task to run, should be short since it delays other expired tasks
+     * @param delay Delay in nanoseconds
+     * @return Handle for cancelling the task
+     */
+    public WheelTimeout schedule(Runnable task, long delay) {
+
+        start();
+
+        WheelTimeout timeout = new WheelTimeout(task, System.nanoTime() + delay);
+        scheduledTimeouts.add(timeout);
+
+        if (idle) {
+            LockSupport.unpark(worker);
+        }
+
+        return timeout;
+    }
+
+    /**
+     * Stops the worker thread. Tasks which did not expire yet are never run.
+     */
+    public void stop() {
+
+        stopped = true;
+
+        Thread thread = worker;
+
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void start() {
+
+        if (!started.get() && started.compareAndSet(false, true)) {
+            startTime = System.nanoTime();
+
+            Thread thread = new Thread(this::run, name);
+            thread.setDaemon(true);
+
+            worker = thread;
+            thread.start();
+        }
+
+        // a task scheduled concurrently with the start must see the start time and the worker
+        while (startTime == 0 || worker == null) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private void run() {
+
+        long tick = 0;
+
+        while (!stopped) {
+            waitForTick(tick);
+
+            int idx = (int) (tick & mask);
+
+            transferScheduledTimeouts(tick);
+            expireTimeouts(idx);
+
+            tick++;
+
+            if (wheelTimeouts == 0 && scheduledTimeouts.isEmpty()) {
+                idle = true;
+
+                // a task scheduled after the idle flag was set unparks the worker, earlier tasks are in the queue
+                while (scheduledTimeouts.isEmpty() && !stopped) {
+                    LockSupport.park(this);
+                }
+
+                idle = false;
+
+                // the wheel is empty, so the ticks passed while parked can be skipped
+                tick = Math.max(tick, (System.nanoTime() - startTime) / tickDuration);
+            }
+        }
+    }
+
+    private void waitForTick(long tick) {
+
+        long deadline = startTime + (tick + 1) * tickDuration;
+
+        for (long remaining = deadline - System.nanoTime(); remaining > 0;
+             remaining = deadline - System.nanoTime()) {
+            LockSupport.parkNanos(this, remaining);
+        }
+    }
+
+    private void transferScheduledTimeouts(long tick) {
+
+        for (WheelTimeout timeout = scheduledTimeouts.poll(); timeout != null; timeout = scheduledTimeouts.poll()) {
+
+            if (timeout.state != WheelTimeout.PENDING) {
+                continue;
+            }
+
+            // tick during which the deadline passes, its bucket is processed after the tick ends
+            long deadlineTick = Math.max(tick, (timeout.deadline - startTime) / tickDuration);
+            int idx = (int) (deadlineTick & mask);
+
+            timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+            timeout.next = wheel[idx];
+            wheel[idx] = timeout;
+            wheelTimeouts++;
+        }
+    }
+
+    private void expireTimeouts(int idx) {
+
+        WheelTimeout timeout = wheel[idx];
+        WheelTimeout remaining = null;
+
+        while (timeout != null) {
+            WheelTimeout next = timeout.next;
+
+            if (timeout.state != WheelTimeout.PENDING) {
+                timeout.next = null;
+                wheelTimeouts--;
+            } else if (timeout.remainingRounds <= 0) {
+                timeout.next = null;
+                wheelTimeouts--;
+                timeout.expire();
+            } else {
+                timeout.remainingRounds--;
+                timeout.next = remaining;
+                remaining = timeout;
+            }
+
+            timeout = next;
+        }
+
+        wheel[idx] = remaining;
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public static final class WheelTimeout {
+
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRING = 2;
+        private static final int EXPIRED = 3;
+
+        private static final AtomicIntegerFieldUpdater<WheelTimeout> STATE =
+                AtomicIntegerFieldUpdater.newUpdater(WheelTimeout.class, "state");
+
+        private final Runnable task;
+        private final long deadline;
+
+        private volatile int state = PENDING;
+
+        // accessed only by the worker thread
+        private long remainingRounds;
+        private WheelTimeout next;
+
+        private WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task.
+         *
+         * @return True if the task was cancelled, false if it already expired
+         */
+        public boolean cancel() {
+            return STATE.compareAndSet(this, PENDING, CANCELLED);
+        }
+
+        /**
+         * Waits until the task of an expired timeout finishes running.
+         */
+        public void awaitExpiration() {
+            while (state != EXPIRED) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private void expire() {
+
+            if (!STATE.compareAndSet(this, PENDING, EXPIRING)) {
+                return;
+            }
+
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.log(Level.WARNING, "Timer task threw an exception.", t);
+            } finally {
+                state = EXPIRED;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import com.kumuluz.ee.fault.tolerance.annotations.CacheResult;
+import com.kumuluz.ee.fault.tolerance.annotations.Collapse;
+import com.kumuluz.ee.fault.tolerance.annotations.Hedge;
+import com.kumuluz.ee.fault.tolerance.config.IsEnabledConfig;
+import org.eclipse.microprofile.faulttolerance.*;
+
+import javax.enterprise.event.Observes;
+import javax.enterprise.inject.spi.*;
+import javax.interceptor.Interceptor;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Discovers all methods executed with fault tolerance during deployment, so that their execution metadata, Hystrix
+ * configuration, circuit breakers and metrics can be initialized before the first invocation.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class MetadataPrecompiler implements Extension {
+
+    private static final Logger log = Logger.getLogger(MetadataPrecompiler.class.getName());
+
+    private static final List<Class<? extends Annotation>> FAULT_TOLERANCE_ANNOTATIONS = Arrays.asList(
+            Asynchronous.class, Bulkhead.class, CircuitBreaker.class, Fallback.class, Retry.class, Timeout.class,
+            Hedge.class, Collapse.class, CacheResult.class);
+
+    private Map<Class<?>, List<Method>> discoveredMethods = new LinkedHashMap<>();
+
+    public <T> void processAnnotatedType(@Observes @WithAnnotations({Asynchronous.class, Bulkhead.class,
+            CircuitBreaker.class, Fallback.class, Retry.class, Timeout.class, Hedge.class,
+            Collapse.class, CacheResult.class}) ProcessAnnotatedType<T> anType) {
+
+        if (!IsEnabledConfig.isEnabled()) {
+            return;
+        }
+
+        AnnotatedType<T> type = anType.getAnnotatedType();
+
+        if (type.isAnnotationPresent(Interceptor.class) || type.getJavaClass().isInterface() ||
+                Modifier.isAbstract(type.getJavaClass().getModifiers())) {
+            return;
+        }
+
+        boolean classAnnotated = FAULT_TOLERANCE_ANNOTATIONS.stream().anyMatch(type::isAnnotationPresent);
+        List<Method> methods = new ArrayList<>();
+
+        for (AnnotatedMethod<? super T> method : type.getMethods()) {
+            Method javaMethod = method.getJavaMember();
+
+            if (javaMethod.getDeclaringClass().equals(Object.class) || Modifier.isStatic(javaMethod.getModifiers()) ||
+                    Modifier.isPrivate(javaMethod.getModifiers())) {
+                continue;
+            }
+
+            if (classAnnotated || FAULT_TOLERANCE_ANNOTATIONS.stream().anyMatch(method::isAnnotationPresent)) {
+                methods.add(javaMethod);
+            }
+        }
+
+        if (!methods.isEmpty()) {
+            discoveredMethods.put(type.getJavaClass(), methods);
+        }
+    }
+
+    public void afterDeploymentValidation(@Observes AfterDeploymentValidation adv) {
+
+        discoveredMethods = Collections.unmodifiableMap(discoveredMethods);
+
+        log.finest("Discovered " + discoveredMethods.values().stream().mapToInt(List::size).sum() +
+                " methods executed with fault tolerance in " + discoveredMethods.size() + " classes.");
+    }
+
+    public Map<Class<?>, List<Method>> getDiscoveredMethods() {
+        return discoveredMethods;
+    }
+}
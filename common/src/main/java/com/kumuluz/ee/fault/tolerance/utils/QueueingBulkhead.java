@@ -0,0 +1,77 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Bulkhead for executions running on their own threads, limiting concurrent executions and executions waiting for
+ * them. Executions are admitted while the number of running and waiting executions is below the sum of both limits,
+ * admitted executions wait for one of the permits in arrival order.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class QueueingBulkhead {
+
+    private final SemaphoreBulkhead admission;
+    private final Semaphore permits;
+
+    public QueueingBulkhead(int limit, int queueSize) {
+        this.admission = new SemaphoreBulkhead(limit + Math.max(0, queueSize));
+        this.permits = new Semaphore(limit, true);
+    }
+
+    /**
+     * @return True if the execution was admitted, false if both the executions and the queue are full
+     */
+    public boolean tryEnter() {
+        return admission.tryAcquire();
+    }
+
+    /**
+     * Waits for a permit to execute. If interrupted, the execution leaves the bulkhead.
+     */
+    public void acquire() throws InterruptedException {
+
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            admission.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Leaves the bulkhead after the execution.
+     */
+    public void release() {
+        permits.release();
+        admission.release();
+    }
+
+    /**
+     * Leaves the bulkhead before the execution acquired a permit.
+     */
+    public void leave() {
+        admission.release();
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Non-blocking semaphore limiting concurrent executions. Permits are taken with a single compare-and-set on the
+ * counter of executions in progress and executions over the limit are rejected immediately.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class SemaphoreBulkhead {
+
+    private final AtomicInteger concurrentExecutions = new AtomicInteger();
+
+    private volatile int limit;
+
+    public SemaphoreBulkhead(int limit) {
+        this.limit = limit;
+    }
+
+    public boolean tryAcquire() {
+
+        for (;;) {
+            int current = concurrentExecutions.get();
+
+            if (current >= limit) {
+                return false;
+            }
+
+            if (concurrentExecutions.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        concurrentExecutions.decrementAndGet();
+    }
+
+    public int getConcurrentExecutions() {
+        return concurrentExecutions.get();
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    /**
+     * Changes the limit. Executions already in progress are not affected when the limit is lowered.
+     */
+    public void setLimit(int limit) {
+        this.limit = limit;
+    }
+}
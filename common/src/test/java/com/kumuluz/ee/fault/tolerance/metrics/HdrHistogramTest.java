@@ -0,0 +1,80 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.metrics;
+
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests recording and exporting of high dynamic range histograms.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HdrHistogramTest {
+
+    @Test
+    public void recordsValues() {
+
+        HdrHistogram histogram = new HdrHistogram(3, TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(60));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.update(i * 1000L);
+        }
+
+        Snapshot snapshot = histogram.getSnapshot();
+
+        Assert.assertEquals(histogram.getCount(), 100);
+        Assert.assertEquals(snapshot.getMin(), 1000L, 1.0);
+        Assert.assertEquals(snapshot.getMax(), 100000L, 100.0);
+        Assert.assertEquals(snapshot.getValue(0.5), 50000.0, 100.0);
+    }
+
+    @Test
+    public void dumpDoesNotCloseStream() {
+
+        HdrHistogram histogram = new HdrHistogram(2, TimeUnit.SECONDS.toNanos(10), TimeUnit.SECONDS.toNanos(60));
+        histogram.update(1000L);
+
+        ClosingAwareOutputStream output = new ClosingAwareOutputStream();
+        histogram.getSnapshot().dump(output);
+
+        Assert.assertFalse(output.closed);
+        Assert.assertFalse(new String(output.toByteArray(), StandardCharsets.UTF_8).isEmpty());
+    }
+
+    private static class ClosingAwareOutputStream extends ByteArrayOutputStream {
+
+        private boolean closed = false;
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            super.close();
+        }
+    }
+}
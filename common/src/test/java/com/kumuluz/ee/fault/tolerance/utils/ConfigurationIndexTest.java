@@ -0,0 +1,70 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import com.kumuluz.ee.configuration.utils.ConfigurationImpl;
+import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.util.Optional;
+
+/**
+ * Tests resolution of configuration values through the configuration index.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class ConfigurationIndexTest {
+
+    private ConfigurationIndex index;
+
+    @BeforeClass
+    public void setUp() {
+        ConfigurationUtil.initialize(new ConfigurationImpl());
+
+        index = new ConfigurationIndex("fault-tolerance", null);
+        index.initialize(ConfigurationUtil.getInstance());
+    }
+
+    @AfterClass
+    public void tearDown() {
+        index.destroy(ConfigurationUtil.getInstance());
+    }
+
+    @Test
+    public void resolvesNonEnumerableEnvironmentKey() {
+
+        String keyPath = "fault-tolerance.indextest.retry.max-retries";
+
+        // environment variable names do not preserve separators, the key path cannot be enumerated
+        Assert.assertFalse(ConfigurationUtil.getInstance().getMapKeys("fault-tolerance.indextest.retry")
+                .map(keys -> keys.contains("max-retries")).orElse(false));
+        Assert.assertEquals(index.get(keyPath), Optional.of("7"));
+    }
+
+    @Test
+    public void resolvesMissingKeyAsEmpty() {
+        Assert.assertEquals(index.get("fault-tolerance.indextest.retry.delay"), Optional.empty());
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests scheduling, cancelling and stopping of the hashed wheel timer.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HashedWheelTimerTest {
+
+    private static final AtomicInteger TIMER_COUNT = new AtomicInteger();
+
+    private String threadName;
+    private HashedWheelTimer timer;
+
+    @BeforeMethod
+    public void setUp() {
+        threadName = "hashed-wheel-timer-test-" + TIMER_COUNT.incrementAndGet();
+        timer = new HashedWheelTimer(threadName, 1, TimeUnit.MILLISECONDS, 8);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void runsTaskNotBeforeDeadline() throws InterruptedException {
+
+        // the delay spans multiple rounds of the wheel
+        assertRunsAfter(TimeUnit.MILLISECONDS.toNanos(30));
+    }
+
+    @Test
+    public void runsTasksOnWorkerThread() throws InterruptedException {
+
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicBoolean onWorker = new AtomicBoolean();
+
+        timer.schedule(() -> {
+            onWorker.set(Thread.currentThread().getName().equals(threadName));
+            ran.countDown();
+        }, 0);
+
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(onWorker.get());
+    }
+
+    @Test
+    public void cancelledTaskDoesNotRun() throws InterruptedException {
+
+        AtomicBoolean ran = new AtomicBoolean();
+        HashedWheelTimer.WheelTimeout timeout = timer.schedule(() -> ran.set(true),
+                TimeUnit.MILLISECONDS.toNanos(20));
+
+        Assert.assertTrue(timeout.cancel());
+
+        Thread.sleep(60);
+
+        Assert.assertFalse(ran.get());
+    }
+
+    @Test
+    public void expiredTaskCanNotBeCancelled() throws InterruptedException {
+
+        CountDownLatch ran = new CountDownLatch(1);
+        HashedWheelTimer.WheelTimeout timeout = timer.schedule(ran::countDown, 0);
+
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        timeout.awaitExpiration();
+        Assert.assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void wakesIdleWorker() throws InterruptedException {
+
+        CountDownLatch ran = new CountDownLatch(1);
+        timer.schedule(ran::countDown, 0);
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+
+        Thread worker = findWorker();
+        awaitState(worker, Thread.State.WAITING);
+
+        assertRunsAfter(TimeUnit.MILLISECONDS.toNanos(5));
+    }
+
+    @Test
+    public void stopEndsWorkerWithoutRunningPendingTasks() throws InterruptedException {
+
+        AtomicBoolean ran = new AtomicBoolean();
+        timer.schedule(() -> ran.set(true), TimeUnit.MILLISECONDS.toNanos(50));
+
+        Thread worker = findWorker();
+        timer.stop();
+
+        worker.join(TimeUnit.SECONDS.toMillis(5));
+
+        Assert.assertFalse(worker.isAlive());
+        Thread.sleep(60);
+        Assert.assertFalse(ran.get());
+    }
+
+    private void assertRunsAfter(long delay) throws InterruptedException {
+
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicLong elapsed = new AtomicLong();
+        long start = System.nanoTime();
+
+        timer.schedule(() -> {
+            elapsed.set(System.nanoTime() - start);
+            ran.countDown();
+        }, delay);
+
+        Assert.assertTrue(ran.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(elapsed.get() >= delay, "Task ran " + (delay - elapsed.get()) + " ns early.");
+    }
+
+    private Thread findWorker() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals(threadName) && thread.isAlive())
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Worker thread is not running."));
+    }
+
+    private static void awaitState(Thread thread, Thread.State state) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (thread.getState() != state && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        Assert.assertEquals(thread.getState(), state);
+    }
+}
@@ -20,36 +20,56 @@
  */
 package com.kumuluz.ee.fault.tolerance;
 
-import com.kumuluz.ee.fault.tolerance.commands.FallbackHelper;
 import com.kumuluz.ee.fault.tolerance.commands.HystrixCommandConfiguration;
+import com.kumuluz.ee.fault.tolerance.commands.SuccessThresholdCircuitBreaker;
+import com.kumuluz.ee.fault.tolerance.configurations.bulkhead.AdaptiveLimitManager;
+import com.kumuluz.ee.fault.tolerance.configurations.cache.CacheConfigurationManager;
+import com.kumuluz.ee.fault.tolerance.configurations.collapse.CollapseConfigurationManager;
+import com.kumuluz.ee.fault.tolerance.configurations.hedge.HedgeConfigurationManager;
 import com.kumuluz.ee.fault.tolerance.configurations.hystrix.CommandHystrixConfigurationUtil;
 import com.kumuluz.ee.fault.tolerance.configurations.hystrix.HystrixFaultToleranceConfigurationManager;
 import com.kumuluz.ee.fault.tolerance.configurations.hystrix.ThreadPoolHystrixConfigurationUtil;
 import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryConfig;
 import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryConfigurationManager;
+import com.kumuluz.ee.fault.tolerance.enums.BulkheadType;
 import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutionStage;
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutorProvider;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
 import com.kumuluz.ee.fault.tolerance.interfaces.FaultToleranceExecutor;
-import com.kumuluz.ee.fault.tolerance.metrics.TimeoutMetricsCollection;
 import com.kumuluz.ee.fault.tolerance.models.ConfigurationProperty;
 import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.stages.AsyncRetryStage;
+import com.kumuluz.ee.fault.tolerance.stages.CacheStage;
+import com.kumuluz.ee.fault.tolerance.stages.CollapseStage;
+import com.kumuluz.ee.fault.tolerance.stages.ExecutorStage;
+import com.kumuluz.ee.fault.tolerance.stages.FallbackStage;
+import com.kumuluz.ee.fault.tolerance.stages.HedgeStage;
+import com.kumuluz.ee.fault.tolerance.stages.HystrixCommandStage;
+import com.kumuluz.ee.fault.tolerance.stages.InvocationMetricsStage;
+import com.kumuluz.ee.fault.tolerance.stages.InvocationStage;
+import com.kumuluz.ee.fault.tolerance.stages.RetryStage;
+import com.kumuluz.ee.fault.tolerance.stages.SemaphoreBulkheadStage;
+import com.kumuluz.ee.fault.tolerance.stages.TimeoutStage;
+import com.kumuluz.ee.fault.tolerance.utils.AdaptiveLimit;
+import com.kumuluz.ee.fault.tolerance.utils.HashedWheelTimer;
+import com.kumuluz.ee.fault.tolerance.utils.QueueingBulkhead;
+import com.kumuluz.ee.fault.tolerance.utils.SemaphoreBulkhead;
 import com.netflix.hystrix.*;
-import com.netflix.hystrix.exception.HystrixBadRequestException;
-import com.netflix.hystrix.exception.HystrixRuntimeException;
-import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
-import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
-import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
 import org.jboss.weld.context.RequestContext;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
 import javax.interceptor.InvocationContext;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.Optional;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.Future;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
@@ -69,6 +89,14 @@ public class HystrixFaultToleranceExecutorImpl implements FaultToleranceExecutor
     private static HashMap<String, HystrixCommandConfiguration> hystrixCommandConfigurations = new HashMap<>();
     private static HashMap<String, HystrixCommandKey> hystrixCommandKeys = new HashMap<>();
     private static HashMap<String, HystrixThreadPoolKey> hystrixThreadPoolKeys = new HashMap<>();
+    private static ConcurrentHashMap<String, SemaphoreBulkheadHolder> semaphoreBulkheads = new ConcurrentHashMap<>();
+    private static ConcurrentHashMap<String, QueueingBulkhead> queueingBulkheads = new ConcurrentHashMap<>();
+
+    // timer of timeouts, hedge delays and collapse windows, shared by all execution plans
+    private HashedWheelTimer timer;
+    private ScheduledExecutorService retryScheduler;
+    // refreshes of synchronous methods hold the thread for the duration of the execution
+    private ExecutorService cacheRefreshExecutor;
 
     @Inject
     private HystrixFaultToleranceConfigurationManager configManager;
@@ -76,6 +104,43 @@ public class HystrixFaultToleranceExecutorImpl implements FaultToleranceExecutor
     @Inject
     private RetryConfigurationManager retryManager;
 
+    @Inject
+    private HedgeConfigurationManager hedgeManager;
+
+    @Inject
+    private CollapseConfigurationManager collapseManager;
+
+    @Inject
+    private CacheConfigurationManager cacheManager;
+
+    @Inject
+    private AdaptiveLimitManager adaptiveLimitManager;
+
+    @Inject
+    private Instance<AsyncExecutorProvider> asyncExecutorProviders;
+
+    @PostConstruct
+    private void init() {
+        timer = new HashedWheelTimer("kumuluzee-fault-tolerance-timer", 1, TimeUnit.MILLISECONDS, 512);
+        retryScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "kumuluzee-fault-tolerance-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        cacheRefreshExecutor = Executors.newCachedThreadPool(r -> {
+            Thread thread = new Thread(r, "kumuluzee-fault-tolerance-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    private void destroy() {
+        timer.stop();
+        retryScheduler.shutdownNow();
+        cacheRefreshExecutor.shutdownNow();
+    }
+
     @Override
     public String getName() {
         return NAME;
@@ -85,181 +150,155 @@ public class HystrixFaultToleranceExecutorImpl implements FaultToleranceExecutor
     public Object execute(InvocationContext invocationContext, RequestContext requestContext,
                           ExecutionMetadata metadata) throws Exception {
 
-        HystrixCommandConfiguration hystrixCommandConfig = getHystrixCommandSetter(metadata);
+        ExecutionStage executionPlan = metadata.getExecutionPlan();
 
-        metadata.getCommonMetricsCollection(invocationContext.getMethod().getName())
-                .ifPresent(c -> c.getTotalInvocations().inc());
+        if (executionPlan == null) {
+            executionPlan = compileExecutionPlan(metadata);
+        }
 
-        try {
-            if (metadata.getRetry() == null) {
-                return executeWithHystrix(hystrixCommandConfig, invocationContext, requestContext, metadata);
-            } else {
-                return executeWithRetry(hystrixCommandConfig, invocationContext, requestContext, metadata,
-                        null, 1, null);
-            }
-        } catch (Exception e) {
-            metadata.getCommonMetricsCollection(invocationContext.getMethod().getName())
-                    .ifPresent(c -> c.getFailedInvocations().inc());
+        return executionPlan.execute(invocationContext, requestContext);
+    }
 
-            throw e;
-        }
+    @Override
+    public void initialize(ExecutionMetadata metadata) {
+        compileExecutionPlan(metadata);
     }
 
-    private Object executeWithRetry(HystrixCommandConfiguration hystrixCommand, InvocationContext invocationContext,
-                                    RequestContext requestContext, ExecutionMetadata metadata,
-                                    RetryConfig retryConfig, int execCnt, Instant executionStart) throws Exception {
+    private synchronized ExecutionStage compileExecutionPlan(ExecutionMetadata metadata) {
+
+        if (metadata.getExecutionPlan() != null)
+            return metadata.getExecutionPlan();
 
-        if (retryConfig == null)
-            retryConfig = retryManager.getRetryConfig(metadata.getIdentifier());
+        log.finest("Compiling execution plan for key '" + metadata.getIdentifier() + "'.");
 
-        if (execCnt > 1) {
-            log.info("Retry attempt #" + execCnt + " to execute command '" + metadata.getCommandKey() + ".");
-            metadata.getRetryMetricsCollection(invocationContext.getMethod().getName())
-                    .ifPresent(c -> c.getRetriesTotal().inc());
+        HystrixCommandConfiguration configuration = getHystrixCommandSetter(metadata);
+        HystrixCommandProperties properties = configuration.getProperties();
+
+        ExecutionStage executionPlan;
+
+        if (isExecutedOnCallingThread(metadata)) {
+            executionPlan = compileCallingThreadPlan(metadata, configuration, properties);
+        } else if (isExecutedWithAsyncExecutor(metadata)) {
+            executionPlan = compileAsyncExecutorPlan(metadata, configuration, properties);
+        } else {
+            HystrixCircuitBreaker circuitBreaker = SuccessThresholdCircuitBreaker.CustomCbFactory.getInstance(
+                    configuration.getCommandKey(),
+                    configuration.getGroupKey(),
+                    properties,
+                    HystrixCommandMetrics.getInstance(configuration.getCommandKey(), configuration.getGroupKey(),
+                            configuration.getThreadPoolKey(), properties),
+                    metadata,
+                    metadata.getCbMetricsCollection());
+
+            AdaptiveLimit adaptiveLimit = adaptiveLimitManager.getAdaptiveLimit(metadata, configuration, null);
+
+            executionPlan = new HystrixCommandStage(configuration, circuitBreaker, adaptiveLimit, metadata);
+        }
+
+        // hedged attempts are started by the plan of a single attempt, so each retry is hedged on its own
+        if (metadata.getHedge() != null) {
+            executionPlan = new HedgeStage((AsyncExecutionStage) executionPlan, timer, metadata,
+                    hedgeManager.getHedgeConfig(metadata.getIdentifier()));
+        }
+
+        if (metadata.getRetry() != null) {
+            RetryConfig retryConfig = retryManager.getRetryConfig(metadata.getIdentifier());
+
+            // plans of asynchronous methods always end with an asynchronous stage
+            executionPlan = metadata.isAsynchronous() ?
+                    new AsyncRetryStage((AsyncExecutionStage) executionPlan, retryScheduler, metadata,
+                            retryConfig) :
+                    new RetryStage(executionPlan, metadata, retryConfig);
+        }
+
+        // collapsed calls are executed by the rest of the plan as a single invocation of the batch method
+        if (metadata.getCollapse() != null) {
+            executionPlan = new CollapseStage(executionPlan, timer, metadata,
+                    collapseManager.getCollapseConfig(metadata.getIdentifier()));
         }
 
-        if (executionStart == null) {
-            executionStart = Instant.now();
+        // without metrics the stage is left out of the plan instead of updating no-op instruments,
+        // invocations of collapsed methods are counted per call, not per batch
+        if (metadata.getCommonMetricsCollection() != null) {
+            executionPlan = new InvocationMetricsStage(executionPlan, metadata.getCommonMetricsCollection());
         }
 
-        try {
-            Object returnObject = executeWithHystrix(hystrixCommand, invocationContext, requestContext, metadata);
-
-            if (execCnt > 1) {
-                metadata.getRetryMetricsCollection(invocationContext.getMethod().getName())
-                        .ifPresent(c -> c.getCallsSucceededRetried().inc());
-            } else {
-                metadata.getRetryMetricsCollection(invocationContext.getMethod().getName())
-                        .ifPresent(c -> c.getCallsSucceededNotRetried().inc());
-            }
-
-            return returnObject;
-        } catch (Exception e) {
-            boolean doRetryOn = Arrays.stream(retryConfig.getRetryOn()).anyMatch(ro -> ro.isInstance(e));
-            boolean doAbortOn = Arrays.stream(retryConfig.getAbortOn()).anyMatch(ao -> ao.isInstance(e));
-
-            boolean maxDurationExceeded = executionStart
-                    .plus(Duration.of(metadata.getRetry().maxDuration(), metadata.getRetry().durationUnit()))
-                    .isBefore(Instant.now());
-
-            if (!doAbortOn && doRetryOn && !maxDurationExceeded &&
-                    (retryConfig.getMaxRetries() == -1 || execCnt < retryConfig.getMaxRetries() + 1)) {
-                // retry is allowed, execute after delay and jitter
-                long jitter = (long)(Math.random() * retryConfig.getJitterInMillis() * 2) -
-                        retryConfig.getJitterInMillis();
-
-                TimeUnit.MILLISECONDS.sleep(retryConfig.getDelayInMillis() + jitter);
-
-                return executeWithRetry(hystrixCommand, invocationContext, requestContext, metadata,
-                        retryConfig, execCnt + 1, executionStart);
-            } else if (metadata.getFallbackHandlerClass() != null || metadata.getFallbackMethod() != null) {
-                // retry is not allowed, fallback is set and can be executed
-                return FallbackHelper.executeFallback(e, metadata, invocationContext, null);
-            } else {
-                // retry is not allowed, fallback is not set
-                metadata.getRetryMetricsCollection(invocationContext.getMethod().getName())
-                        .ifPresent(c -> c.getCallsFailed().inc());
-                throw e;
-            }
+        // cached results are returned before any other pattern is executed
+        if (metadata.getCacheResult() != null) {
+            executionPlan = new CacheStage(executionPlan, cacheRefreshExecutor, metadata,
+                    cacheManager.getCacheConfig(metadata.getIdentifier()));
         }
+
+        metadata.setExecutionPlan(executionPlan);
+
+        return executionPlan;
     }
 
-    private Object executeWithHystrix(HystrixCommandConfiguration hystrixCommand, InvocationContext invocationContext,
-                                      RequestContext requestContext, ExecutionMetadata metadata) throws Exception {
-
-        KumuluzHystrixGenericCommand cmd = new KumuluzHystrixGenericCommand(hystrixCommand, invocationContext,
-                requestContext, metadata);
-
-        try {
-            if (metadata.isAsynchronous()) {
-                Future queued = cmd.queue();
-                return new Future() {
-                    @Override
-                    public boolean cancel(boolean b) {
-                        return queued.cancel(b);
-                    }
-
-                    @Override
-                    public boolean isCancelled() {
-                        return queued.isCancelled();
-                    }
-
-                    @Override
-                    public boolean isDone() {
-                        return queued.isDone();
-                    }
-
-                    @Override
-                    public Object get() throws InterruptedException, ExecutionException {
-                        Object o;
-                        try {
-                            o = queued.get();
-
-                            if (o instanceof Future) {
-                                o = ((Future) o).get();
-                            }
-                        } catch (ExecutionException e) {
-                            Exception processedException = unwrapBulkheadException(e);
-
-                            if (processedException == null && e.getCause() instanceof HystrixRuntimeException) {
-                                processedException = processHystrixException((HystrixRuntimeException) e.getCause(),
-                                        metadata, invocationContext, cmd);
-                            }
-
-                            throw new ExecutionException(processedException);
-                        }
-
-                        updateExecutionSuccessfulMetrics(metadata, invocationContext, cmd);
-
-                        return o;
-                    }
-
-                    @Override
-                    public Object get(long l, TimeUnit timeUnit) throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
-                        Object o;
-                        try {
-                            o = queued.get();
-
-                            if (o instanceof Future) {
-                                o = ((Future) o).get(l, timeUnit);
-                            }
-                        } catch (ExecutionException e) {
-                            Exception processedException = unwrapBulkheadException(e);
-
-                            if (processedException == null && e.getCause() instanceof HystrixRuntimeException) {
-                                processedException = processHystrixException((HystrixRuntimeException) e.getCause(),
-                                        metadata, invocationContext, cmd);
-                            }
-
-                            throw new ExecutionException(processedException);
-                        }
-
-                        updateExecutionSuccessfulMetrics(metadata, invocationContext, cmd);
-
-                        return o;
-                    }
-                };
-            } else {
-                Object returnObject = cmd.execute();
-                updateExecutionSuccessfulMetrics(metadata, invocationContext, cmd);
-                return returnObject;
-            }
-        } catch (HystrixBadRequestException e) {
-            throw (Exception) e.getCause();
-        } catch (HystrixRuntimeException e) {
-            log.warning("Hystrix runtime exception was thrown because of " + e.getCause().getClass().getName());
-
-            throw processHystrixException(e, metadata, invocationContext, cmd);
+    /**
+     * Synchronous methods without circuit breaker, which only use timeout or semaphore bulkhead, are executed on
+     * the calling thread without a Hystrix command.
+     */
+    private boolean isExecutedOnCallingThread(ExecutionMetadata metadata) {
+
+        if (metadata.isAsynchronous() || metadata.getCircuitBreaker() != null) {
+            return false;
+        }
+
+        return metadata.getBulkheadType() == BulkheadType.SEMAPHORE ||
+                (metadata.getBulkhead() == null && metadata.getTimeout() != null);
+    }
+
+    private ExecutionStage compileCallingThreadPlan(ExecutionMetadata metadata,
+                                                    HystrixCommandConfiguration configuration,
+                                                    HystrixCommandProperties properties) {
+
+        ExecutionStage executionPlan = new InvocationStage();
+
+        if (metadata.getTimeout() != null) {
+            executionPlan = new TimeoutStage(executionPlan, timer,
+                    () -> properties.executionTimeoutEnabled().get(),
+                    () -> properties.executionTimeoutInMilliseconds().get(), metadata);
         }
+
+        if (metadata.getBulkheadType() == BulkheadType.SEMAPHORE) {
+            SemaphoreBulkhead bulkhead = getSemaphoreBulkhead(configuration, properties);
+            AdaptiveLimit adaptiveLimit = adaptiveLimitManager.getAdaptiveLimit(metadata, configuration, bulkhead);
+
+            executionPlan = new SemaphoreBulkheadStage(executionPlan, bulkhead, adaptiveLimit, metadata);
+        }
+
+        // with retry, fallback is executed by the retry stage
+        if (metadata.getRetry() == null &&
+                (metadata.getFallbackHandlerClass() != null || metadata.getFallbackMethod() != null)) {
+            executionPlan = new FallbackStage(executionPlan, metadata);
+        }
+
+        return executionPlan;
+    }
+
+    /**
+     * Asynchronous methods without circuit breaker are executed with the executor of the async executor provider,
+     * if one is present.
+     */
+    private boolean isExecutedWithAsyncExecutor(ExecutionMetadata metadata) {
+        return metadata.isAsynchronous() && metadata.getCircuitBreaker() == null &&
+                asyncExecutorProviders.isResolvable();
     }
 
-    private void markBulkheadRejected(ExecutionMetadata metadata, InvocationContext invocationContext) {
-        metadata.getBulkheadMetricsCollection(invocationContext.getMethod().getName())
-                .ifPresent(c -> c.getCallsRejected().inc());
-        if (metadata.isAsynchronous()) {
-            metadata.getBulkheadMetricsCollection(invocationContext.getMethod().getName())
-                    .ifPresent(c -> c.getCurrentlyWaiting().decrementAndGet());
+    private ExecutionStage compileAsyncExecutorPlan(ExecutionMetadata metadata,
+                                                    HystrixCommandConfiguration configuration,
+                                                    HystrixCommandProperties properties) {
+
+        ExecutionStage executionPlan = new InvocationStage();
+
+        if (metadata.getTimeout() != null) {
+            executionPlan = new TimeoutStage(executionPlan, timer,
+                    () -> properties.executionTimeoutEnabled().get(),
+                    () -> properties.executionTimeoutInMilliseconds().get(), metadata);
         }
+
+        return new ExecutorStage(executionPlan, asyncExecutorProviders.get().getExecutor(),
+                getQueueingBulkhead(metadata, configuration), metadata);
     }
 
     @Override
@@ -270,9 +309,17 @@ public class HystrixFaultToleranceExecutorImpl implements FaultToleranceExecutor
 
         if (property.getType() == FaultToleranceType.RETRY) {
             retryManager.updateProperty(property);
+        } else if (property.getType() == FaultToleranceType.HEDGE) {
+            hedgeManager.updateProperty(property);
+        } else if (property.getType() == FaultToleranceType.COLLAPSE) {
+            collapseManager.updateProperty(property);
         } else {
             configManager.updateProperty(property);
         }
+
+        if (property.getType() == FaultToleranceType.BULKHEAD) {
+            semaphoreBulkheads.values().forEach(SemaphoreBulkheadHolder::refreshLimit);
+        }
     }
 
     @Override
@@ -280,6 +327,36 @@ public class HystrixFaultToleranceExecutorImpl implements FaultToleranceExecutor
         return null;
     }
 
+    /**
+     * Semaphore bulkheads are bound to Hystrix commands, the same as Hystrix semaphores, and use the same
+     * concurrent requests property as a limit.
+     */
+    private SemaphoreBulkhead getSemaphoreBulkhead(HystrixCommandConfiguration configuration,
+                                                   HystrixCommandProperties properties) {
+
+        return semaphoreBulkheads.computeIfAbsent(configuration.getCommandKey().name(),
+                key -> new SemaphoreBulkheadHolder(properties)).bulkhead;
+    }
+
+    /**
+     * Queueing bulkheads are bound to groups, the same as Hystrix thread pools, and use the size and the queue size
+     * of the thread pool as limits.
+     */
+    private QueueingBulkhead getQueueingBulkhead(ExecutionMetadata metadata,
+                                                 HystrixCommandConfiguration configuration) {
+
+        if (metadata.getBulkhead() == null) {
+            return null;
+        }
+
+        return queueingBulkheads.computeIfAbsent(configuration.getThreadPoolKey().name(), key -> {
+            HystrixThreadPoolProperties properties = HystrixPropertiesFactory
+                    .getThreadPoolProperties(configuration.getThreadPoolKey(), null);
+
+            return new QueueingBulkhead(properties.actualMaximumSize(), properties.maxQueueSize().get());
+        });
+    }
+
     private HystrixCommandConfiguration getHystrixCommandSetter(ExecutionMetadata metadata) {
 
         String key = metadata.getIdentifier();
@@ -315,6 +392,15 @@ public class HystrixFaultToleranceExecutorImpl implements FaultToleranceExecutor
         if (metadata.getRetry() != null)
             retryManager.initializeRetry(metadata);
 
+        if (metadata.getHedge() != null)
+            hedgeManager.initializeHedge(metadata);
+
+        if (metadata.getCollapse() != null)
+            collapseManager.initializeCollapse(metadata);
+
+        if (metadata.getCacheResult() != null)
+            cacheManager.initializeCache(metadata);
+
         hystrixCommandKeys.put(metadata.getIdentifier(), commandKey);
 
         return commandKey;
@@ -350,65 +436,19 @@ public class HystrixFaultToleranceExecutorImpl implements FaultToleranceExecutor
         return threadPoolKey;
     }
 
-    private BulkheadException unwrapBulkheadException(ExecutionException e) throws ExecutionException {
-        Throwable current = e;
-        Throwable previous = null;
-
-        while (previous != current && current != null) {
+    private static class SemaphoreBulkheadHolder {
 
-            if (current instanceof BulkheadException) {
-                return (BulkheadException) current;
-            }
-
-            previous = current;
-            current = current.getCause();
-        }
+        private final HystrixCommandProperties properties;
+        private final SemaphoreBulkhead bulkhead;
 
-        return null;
-    }
-
-    private void updateExecutionSuccessfulMetrics(ExecutionMetadata metadata, InvocationContext invocationContext,
-                                                  HystrixCommand cmd) {
-        Optional<TimeoutMetricsCollection> metricsCollection = metadata.getTimeoutMetricsCollection(invocationContext
-                .getMethod().getName());
-        if (metricsCollection.isPresent()) {
-            metricsCollection.get().getExecutionDuration().update(cmd.getExecutionTimeInMilliseconds() * 1000000);
-            metricsCollection.get().getCallsNotTimedOut().inc();
-        }
-
-        metadata.getCbMetricsCollection(invocationContext.getMethod().getName())
-                .ifPresent(c -> c.getCallsSucceeded().inc());
-    }
-
-    private Exception processHystrixException(HystrixRuntimeException e, ExecutionMetadata metadata,
-                                                            InvocationContext invocationContext, HystrixCommand cmd) {
-
-        if (e.getFailureType().equals(HystrixRuntimeException.FailureType.SHORTCIRCUIT)) {
-            metadata.getCbMetricsCollection(invocationContext.getMethod().getName())
-                    .ifPresent(c -> c.getCallsPrevented().inc());
-        } else {
-            metadata.getCbMetricsCollection(invocationContext.getMethod().getName())
-                    .ifPresent(c -> c.getCallsFailed().inc());
+        private SemaphoreBulkheadHolder(HystrixCommandProperties properties) {
+            this.properties = properties;
+            this.bulkhead = new SemaphoreBulkhead(
+                    properties.executionIsolationSemaphoreMaxConcurrentRequests().get());
         }
 
-        switch (e.getFailureType()) {
-            case TIMEOUT:
-                metadata.getTimeoutMetricsCollection(invocationContext.getMethod().getName())
-                        .ifPresent(c -> c.getExecutionDuration()
-                                .update(cmd.getExecutionTimeInMilliseconds() * 1000000));
-                metadata.getTimeoutMetricsCollection(invocationContext.getMethod().getName())
-                        .ifPresent(c -> c.getCallsTimedOut().inc());
-                return new TimeoutException("Execution timed out.");
-            case SHORTCIRCUIT:
-                return new CircuitBreakerOpenException("Circuit breaker is in OPEN state.");
-            case REJECTED_THREAD_EXECUTION:
-                markBulkheadRejected(metadata, invocationContext);
-                return new BulkheadException("Thread execution was rejected.");
-            case REJECTED_SEMAPHORE_EXECUTION:
-                markBulkheadRejected(metadata, invocationContext);
-                return new BulkheadException("Semaphore execution was rejected.");
-            default:
-                return (Exception) e.getCause();
+        private void refreshLimit() {
+            bulkhead.setLimit(properties.executionIsolationSemaphoreMaxConcurrentRequests().get());
         }
     }
 }
@@ -0,0 +1,224 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.commands;
+
+import com.kumuluz.ee.fault.tolerance.metrics.CircuitBreakerMetricsCollection;
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Base for circuit breakers which respect the success threshold. Handles the transitions between the circuit breaker
+ * states and the state metrics, while the implementations decide when the failure threshold is reached.
+ *
+ * Adapted from {@link com.netflix.hystrix.HystrixCircuitBreaker.HystrixCircuitBreakerImpl}.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public abstract class AbstractCircuitBreaker implements HystrixCircuitBreaker {
+
+    protected final HystrixCommandProperties properties;
+
+    private static final long NOT_OPENED = Long.MIN_VALUE;
+
+    private final AtomicReference<Status> status = new AtomicReference<>(Status.CLOSED);
+    private final AtomicLong circuitOpened = new AtomicLong(NOT_OPENED);
+
+    private final int successThreshold;
+    private final CircuitBreakerMetricsCollection metricsCollection;
+
+    private final AtomicLong remainingHalfOpenInvocations;
+    private final AtomicLong halfOpenSuccessfulInvocations = new AtomicLong(0);
+
+    private final Map<Status, AtomicLong> timeSpentInStatus;
+    private volatile long previousChangeTime;
+
+    protected AbstractCircuitBreaker(HystrixCommandProperties properties, Integer successThreshold,
+                                     CircuitBreakerMetricsCollection metricsCollection) {
+        this.properties = properties;
+        this.successThreshold = (successThreshold == null) ? 1 : successThreshold;
+        this.metricsCollection = metricsCollection;
+        this.remainingHalfOpenInvocations = new AtomicLong(this.successThreshold);
+
+        this.timeSpentInStatus = new EnumMap<>(Status.class);
+        this.timeSpentInStatus.put(Status.CLOSED, new AtomicLong(0L));
+        this.timeSpentInStatus.put(Status.OPEN, new AtomicLong(0L));
+        this.timeSpentInStatus.put(Status.HALF_OPEN, new AtomicLong(0L));
+        this.previousChangeTime = System.nanoTime();
+
+        if (metricsCollection != null) {
+            metricsCollection.registerClosedGauge(() -> getTimeSpentInStatus(Status.CLOSED));
+            metricsCollection.registerOpenGauge(() -> getTimeSpentInStatus(Status.OPEN));
+            metricsCollection.registerHalfOpenGauge(() -> getTimeSpentInStatus(Status.HALF_OPEN));
+        }
+    }
+
+    enum Status {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * Records a successful invocation while the circuit is closed.
+     */
+    protected abstract void recordSuccess();
+
+    /**
+     * Records a failed invocation while the circuit is closed.
+     */
+    protected abstract void recordFailure();
+
+    /**
+     * Returns true if the recorded invocations reached the request volume threshold and the failure ratio.
+     */
+    protected abstract boolean isFailureThresholdReached();
+
+    /**
+     * Forgets all recorded invocations. Called when the circuit opens or closes.
+     */
+    protected abstract void resetRecordedInvocations();
+
+    @Override
+    public void markSuccess() {
+
+        Status currentStatus = status.get();
+
+        if (currentStatus.equals(Status.CLOSED)) {
+            recordSuccess();
+            checkThresholds(); // required because of late success while request volume not reached yet
+        } else if (currentStatus.equals(Status.HALF_OPEN) &&
+                halfOpenSuccessfulInvocations.incrementAndGet() == successThreshold &&
+                status.compareAndSet(Status.HALF_OPEN, Status.CLOSED)) {
+            //This thread wins the race to close the circuit
+            circuitOpened.set(NOT_OPENED);
+            resetRecordedInvocations();
+            markStatusChange(Status.HALF_OPEN);
+        }
+    }
+
+    @Override
+    public void markNonSuccess() {
+
+        if (status.compareAndSet(Status.HALF_OPEN, Status.OPEN)) {
+            //This thread wins the race to re-open the circuit - it resets the start time for the sleep window
+            open(Status.HALF_OPEN);
+        } else if (status.get().equals(Status.CLOSED)) {
+            recordFailure();
+            checkThresholds();
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        if (properties.circuitBreakerForceOpen().get()) {
+            return true;
+        }
+        if (properties.circuitBreakerForceClosed().get()) {
+            return false;
+        }
+        return circuitOpened.get() != NOT_OPENED;
+    }
+
+    /**
+     * Shouldn't matter, only used for Hystrix internal tests.
+     */
+    @Override
+    public boolean allowRequest() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean attemptExecution() {
+        if (properties.circuitBreakerForceOpen().get()) {
+            return false;
+        }
+        if (properties.circuitBreakerForceClosed().get()) {
+            return true;
+        }
+        if (circuitOpened.get() == NOT_OPENED) {
+            return true;
+        } else {
+            if (isAfterSleepWindow()) {
+                if (status.compareAndSet(Status.OPEN, Status.HALF_OPEN)) {
+                    markStatusChange(Status.OPEN);
+                }
+
+                //only the first few requests after sleep window should execute
+                //if the executing command succeeds, the status will transition to CLOSED
+                //if the executing command fails, the status will transition to OPEN
+                //if the executing command gets unsubscribed, the status will transition to OPEN
+                return this.remainingHalfOpenInvocations.decrementAndGet() >= 0;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private boolean isAfterSleepWindow() {
+        final long circuitOpenTime = circuitOpened.get();
+        if (circuitOpenTime == NOT_OPENED) {
+            // closed concurrently
+            return true;
+        }
+        final long currentTime = System.nanoTime();
+        final long sleepWindowTime = TimeUnit.MILLISECONDS.toNanos(
+                properties.circuitBreakerSleepWindowInMilliseconds().get());
+        return currentTime - circuitOpenTime > sleepWindowTime;
+    }
+
+    private void checkThresholds() {
+        if (isFailureThresholdReached() && status.compareAndSet(Status.CLOSED, Status.OPEN)) {
+            open(Status.CLOSED);
+        }
+    }
+
+    private void open(Status previous) {
+        this.remainingHalfOpenInvocations.set(successThreshold);
+        this.halfOpenSuccessfulInvocations.set(0);
+        circuitOpened.set(System.nanoTime());
+        resetRecordedInvocations();
+
+        if (this.metricsCollection != null) {
+            this.metricsCollection.getOpened().inc();
+        }
+        markStatusChange(previous);
+    }
+
+    private void markStatusChange(Status previous) {
+        long changeTime = System.nanoTime();
+        this.timeSpentInStatus.get(previous).addAndGet(changeTime - this.previousChangeTime);
+        this.previousChangeTime = changeTime;
+    }
+
+    private Long getTimeSpentInStatus(Status status) {
+        long time = this.timeSpentInStatus.get(status).get();
+        if (this.status.get().equals(status)) {
+            time += System.nanoTime() - this.previousChangeTime;
+        }
+
+        return time;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.commands;
+
+import com.kumuluz.ee.fault.tolerance.metrics.CircuitBreakerMetricsCollection;
+import com.netflix.hystrix.HystrixCommandProperties;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Circuit breaker which evaluates the failure ratio over the outcomes of the last requestVolumeThreshold invocations.
+ * When requestVolumeThreshold is changed at runtime, the window is replaced with a window of the new size.
+ *
+ * Outcomes are kept in a lock-free ring of bits (a set bit marks a failure), together with the number of failures in
+ * the ring, so the failure ratio is computed in constant time on every invocation.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CountSlidingWindowCircuitBreaker extends AbstractCircuitBreaker {
+
+    private volatile Window window;
+
+    CountSlidingWindowCircuitBreaker(HystrixCommandProperties properties, Integer successThreshold,
+                                     CircuitBreakerMetricsCollection metricsCollection) {
+        super(properties, successThreshold, metricsCollection);
+
+        this.window = new Window(getWindowSize());
+    }
+
+    @Override
+    protected void recordSuccess() {
+        window.record(false);
+    }
+
+    @Override
+    protected void recordFailure() {
+        window.record(true);
+    }
+
+    @Override
+    protected boolean isFailureThresholdReached() {
+        Window current = this.window;
+        int windowSize = getWindowSize();
+
+        // request volume threshold was changed, recording starts over in a window of the new size
+        if (current.size != windowSize) {
+            this.window = new Window(windowSize);
+            return false;
+        }
+
+        long recorded = current.getRecorded();
+
+        return recorded >= current.size &&
+                (double) current.getFailures() / recorded >=
+                        (double) this.properties.circuitBreakerErrorThresholdPercentage().get() / 100;
+    }
+
+    @Override
+    protected void resetRecordedInvocations() {
+        // outcomes still being recorded into the previous window are discarded with it
+        this.window = new Window(getWindowSize());
+    }
+
+    private int getWindowSize() {
+        return Math.max(1, properties.circuitBreakerRequestVolumeThreshold().get());
+    }
+
+    private static class Window {
+
+        private final int size;
+        private final AtomicLongArray outcomes;
+        private final AtomicLong cursor = new AtomicLong(0);
+        private final AtomicInteger failures = new AtomicInteger(0);
+
+        Window(int size) {
+            this.size = size;
+            this.outcomes = new AtomicLongArray((size + 63) >>> 6);
+        }
+
+        void record(boolean failure) {
+            int index = (int) (cursor.getAndIncrement() % size);
+            int word = index >>> 6;
+            long mask = 1L << index;
+
+            long previous;
+            long updated;
+            do {
+                previous = outcomes.get(word);
+                updated = failure ? previous | mask : previous & ~mask;
+            } while (previous != updated && !outcomes.compareAndSet(word, previous, updated));
+
+            boolean previousFailure = (previous & mask) != 0;
+            if (failure && !previousFailure) {
+                failures.incrementAndGet();
+            } else if (!failure && previousFailure) {
+                failures.decrementAndGet();
+            }
+        }
+
+        long getRecorded() {
+            return Math.min(cursor.get(), size);
+        }
+
+        int getFailures() {
+            return failures.get();
+        }
+    }
+}
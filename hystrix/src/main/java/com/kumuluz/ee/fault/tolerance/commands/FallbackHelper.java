@@ -21,16 +21,13 @@
 package com.kumuluz.ee.fault.tolerance.commands;
 
 import com.kumuluz.ee.fault.tolerance.exceptions.FaultToleranceConfigException;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
 import com.kumuluz.ee.fault.tolerance.models.DefaultFallbackExecutionContext;
 import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
-import org.eclipse.microprofile.faulttolerance.FallbackHandler;
 import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
 import org.jboss.weld.context.RequestContext;
 
-import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.CDI;
 import javax.interceptor.InvocationContext;
-import java.lang.reflect.InvocationTargetException;
 import java.util.logging.Logger;
 
 /**
@@ -43,7 +40,10 @@ public class FallbackHelper {
 
     private static final Logger log = Logger.getLogger(FallbackHelper.class.getName());
 
-    public static Object executeFallback(Throwable cause, ExecutionMetadata metadata, InvocationContext ic,
+    private static final String CONTEXT_DATA_FALLBACK_EXECUTED_KEY = "fault-tolerance-fallback-executed";
+
+    public static Object executeFallback(Throwable cause, ExecutionMetadata metadata,
+                                         FallbackMetricsCollection metricsCollection, InvocationContext ic,
                                          RequestContext rc) throws Exception {
 
         if (cause != null) {
@@ -53,48 +53,62 @@ public class FallbackHelper {
 
         boolean rcActivated = false;
 
+        ic.getContextData().put(CONTEXT_DATA_FALLBACK_EXECUTED_KEY, Boolean.TRUE);
+
         try {
-            if (metadata.getFallbackHandlerClass() != null) {
+            if (metadata.getFallbackHandlerProvider() != null) {
 
                 if (rc != null && !rc.isActive()) {
                     rc.activate();
                     rcActivated = true;
                 }
 
-                Instance<? extends FallbackHandler> fallbackCdi = CDI.current().select(metadata.getFallbackHandlerClass());
-                FallbackHandler fallbackHandler = fallbackCdi.get();
-
                 DefaultFallbackExecutionContext executionContext = new DefaultFallbackExecutionContext();
                 executionContext.setMethod(ic.getMethod());
                 executionContext.setParameters(ic.getParameters());
                 executionContext.setFailiure(cause);
 
-                metadata.getFallbackMetricsCollection(ic.getMethod().getName()).ifPresent(c -> c.getTotalCalls().inc());
-
-                Object response = fallbackHandler.handle(executionContext);
-
-                CDI.current().destroy(fallbackCdi);
+                if (metricsCollection != null) {
+                    metricsCollection.getTotalCalls().inc();
+                }
 
-                return response;
-            } else if (metadata.getFallbackMethod() != null) {
-                metadata.getFallbackMetricsCollection(ic.getMethod().getName()).ifPresent(c -> c.getTotalCalls().inc());
-                return metadata.getFallbackMethod().invoke(ic.getTarget(),
-                        ic.getParameters());
+                return metadata.getFallbackHandlerProvider().handle(executionContext);
+            } else if (metadata.getFallbackMethodHandle() != null) {
+                if (metricsCollection != null) {
+                    metricsCollection.getTotalCalls().inc();
+                }
+                return invokeFallbackMethod(metadata, ic);
             } else {
                 String msg = "Fallback should not be invoked if both fallback mechanisms (" +
                         "fallbackHandler and fallbackMethod) are undefined.";
                 log.severe(msg);
                 throw new FaultToleranceConfigException(msg);
             }
-        } catch (IllegalAccessException|InvocationTargetException e) {
-            String msg = "Exception occured while trying to invoke fallback method for key '" +
-                    metadata.getCommandKey() + "': " + e.getClass().getName();
-            log.severe(msg);
-            throw new FaultToleranceException(msg, e);
         } finally {
             if (rcActivated && rc.isActive())
                 rc.deactivate();
         }
     }
 
+    /**
+     * Checks if the fallback was executed for the invocation, so its result was provided by the fallback.
+     */
+    public static boolean isFallbackExecuted(InvocationContext ic) {
+        return Boolean.TRUE.equals(ic.getContextData().get(CONTEXT_DATA_FALLBACK_EXECUTED_KEY));
+    }
+
+    private static Object invokeFallbackMethod(ExecutionMetadata metadata, InvocationContext ic) throws Exception {
+
+        try {
+            return metadata.getFallbackMethodHandle().invokeExact(ic.getTarget(), ic.getParameters());
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            String msg = "Exception occured while trying to invoke fallback method for key '" +
+                    metadata.getCommandKey() + "': " + t.getClass().getName();
+            log.severe(msg);
+            throw new FaultToleranceException(msg, t);
+        }
+    }
+
 }
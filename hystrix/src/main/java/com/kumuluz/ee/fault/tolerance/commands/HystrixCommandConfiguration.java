@@ -22,11 +22,17 @@ package com.kumuluz.ee.fault.tolerance.commands;
 
 import com.netflix.hystrix.HystrixCommandGroupKey;
 import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
 import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesStrategy;
 
 /**
  * Configuration for a Hystrix command.
  *
+ * Command properties are resolved once, when the configuration is created. Their values are dynamic and change when
+ * the watched configuration is updated, so commands constructed with this configuration do not look them up again.
+ *
  * @author Urban Malc
  * @since 1.1.0
  */
@@ -36,12 +42,18 @@ public class HystrixCommandConfiguration {
     private HystrixCommandKey commandKey;
     private HystrixThreadPoolKey threadPoolKey;
 
+    private HystrixCommandProperties properties;
+    private HystrixPropertiesStrategy propertiesStrategy;
+
     public HystrixCommandConfiguration(HystrixCommandGroupKey groupKey,
                                        HystrixCommandKey commandKey,
                                        HystrixThreadPoolKey threadPoolKey) {
         this.groupKey = groupKey;
         this.commandKey = commandKey;
         this.threadPoolKey = threadPoolKey;
+
+        this.properties = HystrixPropertiesFactory.getCommandProperties(commandKey, null);
+        this.propertiesStrategy = new ResolvedPropertiesStrategy(properties);
     }
 
     public HystrixCommandGroupKey getGroupKey() {
@@ -55,4 +67,36 @@ public class HystrixCommandConfiguration {
     public HystrixThreadPoolKey getThreadPoolKey() {
         return threadPoolKey;
     }
+
+    public HystrixCommandProperties getProperties() {
+        return properties;
+    }
+
+    /**
+     * Returns properties strategy, which supplies the resolved properties to the commands instead of the properties
+     * factory.
+     */
+    public HystrixPropertiesStrategy getPropertiesStrategy() {
+        return propertiesStrategy;
+    }
+
+    public boolean isThreadExecution() {
+        return properties.executionIsolationStrategy().get() ==
+                HystrixCommandProperties.ExecutionIsolationStrategy.THREAD;
+    }
+
+    private static class ResolvedPropertiesStrategy extends HystrixPropertiesStrategy {
+
+        private final HystrixCommandProperties properties;
+
+        private ResolvedPropertiesStrategy(HystrixCommandProperties properties) {
+            this.properties = properties;
+        }
+
+        @Override
+        public HystrixCommandProperties getCommandProperties(HystrixCommandKey commandKey,
+                                                             HystrixCommandProperties.Setter builder) {
+            return properties;
+        }
+    }
 }
@@ -20,18 +20,12 @@
  */
 package com.kumuluz.ee.fault.tolerance.commands;
 
-import com.kumuluz.ee.fault.tolerance.enums.CircuitBreakerType;
 import com.kumuluz.ee.fault.tolerance.metrics.CircuitBreakerMetricsCollection;
 import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
 import com.netflix.hystrix.*;
 
-import java.time.Duration;
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Circuit breaker with support for success threshold.
@@ -41,163 +35,39 @@ import java.util.concurrent.atomic.AtomicReference;
  * @author Urban Malc
  * @since 1.1.0
  */
-public class SuccessThresholdCircuitBreaker implements HystrixCircuitBreaker {
+public class SuccessThresholdCircuitBreaker extends AbstractCircuitBreaker {
 
-    private final HystrixCommandProperties properties;
-
-    private final AtomicReference<Status> status = new AtomicReference<>(Status.CLOSED);
-    private final AtomicLong circuitOpened = new AtomicLong(-1);
-
-    private int successThreshold;
-    private CircuitBreakerMetricsCollection metricsCollection;
-
-    private AtomicLong remainingHalfOpenInvocations = new AtomicLong(successThreshold);
-    private AtomicLong successfulInvocations = new AtomicLong(0);
-    private AtomicLong failedInvocations = new AtomicLong(0);
-
-    private Map<Status, AtomicLong> timeSpentInStatus;
-    private Instant previousChangeTime;
+    private final LongAdder successfulInvocations = new LongAdder();
+    private final LongAdder failedInvocations = new LongAdder();
 
     private SuccessThresholdCircuitBreaker(HystrixCommandProperties properties, Integer successThreshold,
                                            CircuitBreakerMetricsCollection metricsCollection) {
-        this.properties = properties;
-        this.successThreshold = (successThreshold == null) ? 1 : successThreshold;
-        this.metricsCollection = metricsCollection;
-
-        this.timeSpentInStatus = new HashMap<>(Status.values().length);
-        this.timeSpentInStatus.put(Status.CLOSED, new AtomicLong(0L));
-        this.timeSpentInStatus.put(Status.OPEN, new AtomicLong(0L));
-        this.timeSpentInStatus.put(Status.HALF_OPEN, new AtomicLong(0L));
-        this.previousChangeTime = Instant.now();
-
-        if (metricsCollection != null) {
-            metricsCollection.registerClosedGauge(() -> getTimeSpentInStatus(Status.CLOSED));
-            metricsCollection.registerOpenGauge(() -> getTimeSpentInStatus(Status.OPEN));
-            metricsCollection.registerHalfOpenGauge(() -> getTimeSpentInStatus(Status.HALF_OPEN));
-        }
-    }
-
-    enum Status {
-        CLOSED, OPEN, HALF_OPEN
-    }
-
-    @Override
-    public void markSuccess() {
-
-        if (successfulInvocations.incrementAndGet() == successThreshold && !this.status.get().equals(Status.CLOSED)) {
-            //This thread wins the race to close the circuit
-            circuitOpened.set(-1L);
-
-            Status previousStatus = this.status.getAndSet(Status.CLOSED);
-            this.successfulInvocations.set(0);
-            this.failedInvocations.set(0);
-            this.remainingHalfOpenInvocations.set(successThreshold);
-            this.markStatusChange(previousStatus);
-        }
-
-        checkThresholds(); // required because of late success while request volume not reached yet
+        super(properties, successThreshold, metricsCollection);
     }
 
     @Override
-    public void markNonSuccess() {
-
-        if (status.compareAndSet(Status.HALF_OPEN, Status.OPEN)) {
-            //This thread wins the race to re-open the circuit - it resets the start time for the sleep window
-            circuitOpened.set(System.currentTimeMillis());
-            this.successfulInvocations.set(0);
-            this.failedInvocations.set(0);
-            this.remainingHalfOpenInvocations.set(successThreshold);
-
-            this.metricsCollection.getOpened().inc();
-            this.markStatusChange(Status.HALF_OPEN);
-        } else {
-            this.failedInvocations.incrementAndGet();
-            checkThresholds();
-        }
+    protected void recordSuccess() {
+        successfulInvocations.increment();
     }
 
     @Override
-    public boolean isOpen() {
-        if (properties.circuitBreakerForceOpen().get()) {
-            return true;
-        }
-        if (properties.circuitBreakerForceClosed().get()) {
-            return false;
-        }
-        return circuitOpened.get() >= 0;
+    protected void recordFailure() {
+        failedInvocations.increment();
     }
 
-    /**
-     * Shouldn't matter, only used for Hystrix internal tests.
-     */
     @Override
-    public boolean allowRequest() {
-        throw new UnsupportedOperationException();
-    }
-
-    private boolean isAfterSleepWindow() {
-        final long circuitOpenTime = circuitOpened.get();
-        final long currentTime = System.currentTimeMillis();
-        final long sleepWindowTime = properties.circuitBreakerSleepWindowInMilliseconds().get();
-        return currentTime > circuitOpenTime + sleepWindowTime;
-    }
-
-    private void checkThresholds() {
-        long failed = this.failedInvocations.get();
-        long sum = failed + this.successfulInvocations.get();
+    protected boolean isFailureThresholdReached() {
+        long failed = this.failedInvocations.sum();
+        long sum = failed + this.successfulInvocations.sum();
 
-        if (sum >= this.properties.circuitBreakerRequestVolumeThreshold().get() &&
-                (double) failed / sum >= (double) this.properties.circuitBreakerErrorThresholdPercentage().get() / 100) {
-            if (status.compareAndSet(Status.CLOSED, Status.OPEN)) {
-                circuitOpened.set(System.currentTimeMillis());
-                this.failedInvocations.set(0);
-                this.successfulInvocations.set(0);
-                this.remainingHalfOpenInvocations.set(successThreshold);
-
-                if (this.metricsCollection != null) {
-                    this.metricsCollection.getOpened().inc();
-                    this.markStatusChange(Status.CLOSED);
-                }
-            }
-        }
+        return sum >= this.properties.circuitBreakerRequestVolumeThreshold().get() &&
+                (double) failed / sum >= (double) this.properties.circuitBreakerErrorThresholdPercentage().get() / 100;
     }
 
     @Override
-    public boolean attemptExecution() {
-        if (properties.circuitBreakerForceOpen().get()) {
-            return false;
-        }
-        if (properties.circuitBreakerForceClosed().get()) {
-            return true;
-        }
-        if (circuitOpened.get() == -1) {
-            return true;
-        } else {
-            if (isAfterSleepWindow()) {
-                //only the first few requests after sleep window should execute
-                //if the executing command succeeds, the status will transition to CLOSED
-                //if the executing command fails, the status will transition to OPEN
-                //if the executing command gets unsubscribed, the status will transition to OPEN
-                return this.remainingHalfOpenInvocations.decrementAndGet() >= 0;
-            } else {
-                return false;
-            }
-        }
-    }
-
-    private void markStatusChange(Status previous) {
-        Instant changeTime = Instant.now();
-        this.timeSpentInStatus.get(previous).addAndGet(Duration.between(this.previousChangeTime, changeTime).toNanos());
-        this.previousChangeTime = changeTime;
-    }
-
-    private Long getTimeSpentInStatus(Status status) {
-        long time = this.timeSpentInStatus.get(status).get();
-        if (this.status.get().equals(status)) {
-            time += Duration.between(this.previousChangeTime, Instant.now()).toNanos();
-        }
-
-        return time;
+    protected void resetRecordedInvocations() {
+        this.failedInvocations.reset();
+        this.successfulInvocations.reset();
     }
 
     public static class CustomCbFactory extends Factory {
@@ -237,10 +107,23 @@ public class SuccessThresholdCircuitBreaker implements HystrixCircuitBreaker {
             // Create and add to the map ... use putIfAbsent to atomically handle the possible race-condition of
             // 2 threads hitting this point at the same time and let ConcurrentHashMap provide us our thread-safety
             // If 2 threads hit here only one will get added and the other will get a non-null response instead.
-            HystrixCircuitBreaker instance = (metadata.getCircuitBreakerType().equals(CircuitBreakerType.HYSTRIX)) ?
-                    Factory.getInstance(key, group, properties, metrics) :
-                    new SuccessThresholdCircuitBreaker(properties, metadata.getCircuitBreakerSuccessThreshold(),
-                            metricsCollection);
+            HystrixCircuitBreaker instance;
+            switch (metadata.getCircuitBreakerType()) {
+                case SUCCESS_THRESHOLD:
+                    instance = new SuccessThresholdCircuitBreaker(properties,
+                            metadata.getCircuitBreakerSuccessThreshold(), metricsCollection);
+                    break;
+                case COUNT_SLIDING_WINDOW:
+                    instance = new CountSlidingWindowCircuitBreaker(properties,
+                            metadata.getCircuitBreakerSuccessThreshold(), metricsCollection);
+                    break;
+                case TIME_SLIDING_WINDOW:
+                    instance = new TimeSlidingWindowCircuitBreaker(properties,
+                            metadata.getCircuitBreakerSuccessThreshold(), metricsCollection);
+                    break;
+                default:
+                    instance = Factory.getInstance(key, group, properties, metrics);
+            }
             HystrixCircuitBreaker cbForCommand = circuitBreakersByCommand.putIfAbsent(mapKey, instance);
             if (cbForCommand == null) {
                 // this means the putIfAbsent step just created a new one so let's retrieve and return it
@@ -0,0 +1,129 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.commands;
+
+import com.kumuluz.ee.fault.tolerance.metrics.CircuitBreakerMetricsCollection;
+import com.netflix.hystrix.HystrixCommandProperties;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Circuit breaker which evaluates the failure ratio over the invocations in the last rolling window.
+ *
+ * The rolling window is split into buckets, configured with the metrics.rolling-window.size and
+ * metrics.rolling-window.buckets properties. Each bucket counts its outcomes in striped cells, so concurrent
+ * invocations of the same command do not contend on a single counter.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class TimeSlidingWindowCircuitBreaker extends AbstractCircuitBreaker {
+
+    private final int bucketCount;
+    private final long bucketLengthNanos;
+    private final long startTime;
+
+    private volatile AtomicReferenceArray<Bucket> buckets;
+
+    TimeSlidingWindowCircuitBreaker(HystrixCommandProperties properties, Integer successThreshold,
+                                    CircuitBreakerMetricsCollection metricsCollection) {
+        super(properties, successThreshold, metricsCollection);
+
+        this.bucketCount = Math.max(1, properties.metricsRollingStatisticalWindowBuckets().get());
+        this.bucketLengthNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(
+                properties.metricsRollingStatisticalWindowInMilliseconds().get()) / bucketCount);
+        this.startTime = System.nanoTime();
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    @Override
+    protected void recordSuccess() {
+        getCurrentBucket().successes.increment();
+    }
+
+    @Override
+    protected void recordFailure() {
+        getCurrentBucket().failures.increment();
+    }
+
+    @Override
+    protected boolean isFailureThresholdReached() {
+        AtomicReferenceArray<Bucket> current = this.buckets;
+        long oldestIndex = getBucketIndex() - bucketCount;
+
+        long failed = 0;
+        long sum = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = current.get(i);
+
+            if (bucket != null && bucket.index > oldestIndex) {
+                long bucketFailed = bucket.failures.sum();
+                failed += bucketFailed;
+                sum += bucketFailed + bucket.successes.sum();
+            }
+        }
+
+        return sum > 0 && sum >= this.properties.circuitBreakerRequestVolumeThreshold().get() &&
+                (double) failed / sum >= (double) this.properties.circuitBreakerErrorThresholdPercentage().get() / 100;
+    }
+
+    @Override
+    protected void resetRecordedInvocations() {
+        // outcomes still being recorded into the previous buckets are discarded with them
+        this.buckets = new AtomicReferenceArray<>(bucketCount);
+    }
+
+    private long getBucketIndex() {
+        return (System.nanoTime() - startTime) / bucketLengthNanos;
+    }
+
+    private Bucket getCurrentBucket() {
+        AtomicReferenceArray<Bucket> current = this.buckets;
+        long index = getBucketIndex();
+        int slot = (int) (index % bucketCount);
+
+        Bucket bucket = current.get(slot);
+        while (bucket == null || bucket.index < index) {
+            Bucket rotated = new Bucket(index);
+
+            if (current.compareAndSet(slot, bucket, rotated)) {
+                return rotated;
+            }
+
+            bucket = current.get(slot);
+        }
+
+        return bucket;
+    }
+
+    private static class Bucket {
+
+        private final long index;
+        private final LongAdder successes = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+
+        Bucket(long index) {
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.configurations.bulkhead;
+
+import com.kumuluz.ee.fault.tolerance.commands.HystrixCommandConfiguration;
+import com.kumuluz.ee.fault.tolerance.configurations.hystrix.HystrixFaultToleranceConfigurationManager;
+import com.kumuluz.ee.fault.tolerance.enums.AdaptiveLimitType;
+import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
+import com.kumuluz.ee.fault.tolerance.enums.HystrixConfigurationType;
+import com.kumuluz.ee.fault.tolerance.metrics.BulkheadMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ConfigurationProperty;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.AdaptiveLimit;
+import com.kumuluz.ee.fault.tolerance.utils.AimdLimit;
+import com.kumuluz.ee.fault.tolerance.utils.GradientLimit;
+import com.kumuluz.ee.fault.tolerance.utils.SemaphoreBulkhead;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Configuration manager for adaptive bulkhead limits. Limits are bound to the same key as the bulkhead they drive:
+ * Hystrix commands for synchronous executions and Hystrix thread pools for asynchronous executions.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@ApplicationScoped
+public class AdaptiveLimitManager {
+
+    private static final Logger log = Logger.getLogger(AdaptiveLimitManager.class.getName());
+
+    private static final String SEMAPHORE_PERMITS_PROPERTY = "execution.isolation.semaphore.maxConcurrentRequests";
+
+    private Map<String, AdaptiveLimit> adaptiveLimits;
+
+    @Inject
+    private HystrixFaultToleranceConfigurationManager configManager;
+
+    @PostConstruct
+    private void init() {
+        adaptiveLimits = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Returns adaptive limit of the bulkhead or null if the limit is static.
+     *
+     * @param metadata           Execution metadata
+     * @param configuration      Hystrix command configuration
+     * @param semaphoreBulkhead  Semaphore bulkhead executing the invocations or null if executed by Hystrix
+     * @return Adaptive limit or null
+     */
+    public AdaptiveLimit getAdaptiveLimit(ExecutionMetadata metadata, HystrixCommandConfiguration configuration,
+                                          SemaphoreBulkhead semaphoreBulkhead) {
+
+        if (metadata.getBulkhead() == null) {
+            return null;
+        }
+
+        AdaptiveLimitType type;
+
+        try {
+            type = findConfig(metadata, "adaptive-limit.algorithm")
+                    .flatMap(cp -> configManager.getKumuluzConfigString(cp.configurationPath()))
+                    .map(configVal -> AdaptiveLimitType.valueOf(configVal.toUpperCase()))
+                    .orElse(null);
+        } catch (IllegalArgumentException e) {
+            log.log(Level.SEVERE, "Could not determine adaptive limit algorithm from config, using static limit.",
+                    e);
+            return null;
+        }
+
+        if (type == null) {
+            return null;
+        }
+
+        String key = metadata.isAsynchronous() ?
+                HystrixConfigurationType.THREAD_POOL.getConfigKey() + "." + configuration.getThreadPoolKey().name() :
+                HystrixConfigurationType.COMMAND.getConfigKey() + "." + configuration.getCommandKey().name();
+
+        AdaptiveLimit adaptiveLimit = adaptiveLimits.computeIfAbsent(key,
+                k -> createAdaptiveLimit(type, metadata, configuration, semaphoreBulkhead));
+
+        BulkheadMetricsCollection metricsCollection = metadata.getBulkheadMetricsCollection();
+
+        if (metricsCollection != null) {
+            metricsCollection.registerAdaptiveLimitMetrics(() -> (long) adaptiveLimit.getLimit(),
+                    adaptiveLimit::getShortRtt, adaptiveLimit::getLongRtt);
+        }
+
+        return adaptiveLimit;
+    }
+
+    private AdaptiveLimit createAdaptiveLimit(AdaptiveLimitType type, ExecutionMetadata metadata,
+                                              HystrixCommandConfiguration configuration,
+                                              SemaphoreBulkhead semaphoreBulkhead) {
+
+        log.info("Initializing " + type + " adaptive limit for bulkhead of command '" +
+                metadata.getIdentifier() + "'.");
+
+        int minLimit = findConfig(metadata, "adaptive-limit.min-limit")
+                .flatMap(cp -> configManager.getKumuluzConfigInteger(cp.configurationPath()))
+                .orElse(1);
+
+        int maxLimit;
+        IntConsumer limitListener;
+
+        if (metadata.isAsynchronous()) {
+            HystrixThreadPoolProperties properties = HystrixPropertiesFactory
+                    .getThreadPoolProperties(configuration.getThreadPoolKey(), null);
+            String poolKey = configuration.getThreadPoolKey().name();
+            int queueThreshold = properties.queueSizeRejectionThreshold().get();
+
+            maxLimit = properties.actualMaximumSize();
+
+            // pool only shrinks its core size, so the maximum size never drops below it
+            configManager.setHystrixConfig(HystrixConfigurationType.THREAD_POOL, poolKey,
+                    "allowMaximumSizeToDivergeFromCoreSize", true);
+            configManager.setHystrixConfig(HystrixConfigurationType.THREAD_POOL, poolKey, "maximumSize", maxLimit);
+
+            limitListener = limit -> {
+                configManager.setHystrixConfig(HystrixConfigurationType.THREAD_POOL, poolKey, "coreSize", limit);
+                configManager.setHystrixConfig(HystrixConfigurationType.THREAD_POOL, poolKey,
+                        "queueSizeRejectionThreshold", (int) ((long) queueThreshold * limit / maxLimit));
+            };
+        } else {
+            HystrixCommandProperties properties = configuration.getProperties();
+            String commandKey = configuration.getCommandKey().name();
+
+            maxLimit = properties.executionIsolationSemaphoreMaxConcurrentRequests().get();
+
+            limitListener = limit -> {
+                configManager.setHystrixConfig(HystrixConfigurationType.COMMAND, commandKey,
+                        SEMAPHORE_PERMITS_PROPERTY, limit);
+
+                if (semaphoreBulkhead != null) {
+                    semaphoreBulkhead.setLimit(limit);
+                }
+            };
+        }
+
+        if (type == AdaptiveLimitType.GRADIENT) {
+            return new GradientLimit(minLimit, maxLimit, limitListener);
+        }
+
+        long latencyThreshold = findConfig(metadata, "adaptive-limit.latency-threshold")
+                .flatMap(cp -> configManager.getKumuluzConfigDuration(cp.configurationPath()))
+                .map(Duration::toNanos)
+                .orElse(0L);
+
+        return new AimdLimit(minLimit, maxLimit, latencyThreshold, limitListener);
+    }
+
+    private Optional<ConfigurationProperty> findConfig(ExecutionMetadata metadata, String propertyPath) {
+        return configManager.findKumuluzConfig(metadata.getCommandKey(), metadata.getGroupKey(),
+                FaultToleranceType.BULKHEAD, propertyPath);
+    }
+}
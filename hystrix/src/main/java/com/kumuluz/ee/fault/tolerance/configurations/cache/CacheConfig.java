@@ -0,0 +1,69 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.configurations.cache;
+
+import com.kumuluz.ee.fault.tolerance.enums.CacheEvictionType;
+
+/**
+ * Configuration model class for result cache
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CacheConfig {
+
+    private long ttlInNanos;
+    private long refreshAfterInNanos;
+    private int maxSize;
+    private CacheEvictionType evictionType;
+
+    public long getTtlInNanos() {
+        return ttlInNanos;
+    }
+
+    public void setTtlInNanos(long ttlInNanos) {
+        this.ttlInNanos = ttlInNanos;
+    }
+
+    public long getRefreshAfterInNanos() {
+        return refreshAfterInNanos;
+    }
+
+    public void setRefreshAfterInNanos(long refreshAfterInNanos) {
+        this.refreshAfterInNanos = refreshAfterInNanos;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public void setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public CacheEvictionType getEvictionType() {
+        return evictionType;
+    }
+
+    public void setEvictionType(CacheEvictionType evictionType) {
+        this.evictionType = evictionType;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.configurations.cache;
+
+import com.kumuluz.ee.fault.tolerance.annotations.CacheResult;
+import com.kumuluz.ee.fault.tolerance.configurations.hystrix.HystrixFaultToleranceConfigurationManager;
+import com.kumuluz.ee.fault.tolerance.enums.CacheEvictionType;
+import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
+import com.kumuluz.ee.fault.tolerance.models.ConfigurationProperty;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Configuration manager for managing result cache configurations. Cache properties are read when the cache is
+ * initialized and are not watched, since the cache is sized and expired on creation.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@ApplicationScoped
+public class CacheConfigurationManager {
+
+    private static final Logger log = Logger.getLogger(CacheConfigurationManager.class.getName());
+
+    private Map<String, CacheConfig> cacheConfigs;
+
+    @Inject
+    private HystrixFaultToleranceConfigurationManager configManager;
+
+    @PostConstruct
+    private void init() {
+        cacheConfigs = new ConcurrentHashMap<>();
+    }
+
+    public void initializeCache(ExecutionMetadata metadata) {
+
+        CacheResult cacheResult = metadata.getCacheResult();
+
+        if (cacheResult == null)
+            return;
+
+        CacheConfig cacheConfig = new CacheConfig();
+
+        cacheConfig.setTtlInNanos(findConfig(metadata, "ttl")
+                .flatMap(cp -> configManager.getKumuluzConfigDuration(cp.configurationPath()))
+                .orElse(Duration.of(cacheResult.ttl(), cacheResult.ttlUnit()))
+                .toNanos());
+
+        cacheConfig.setRefreshAfterInNanos(findConfig(metadata, "refresh-after")
+                .flatMap(cp -> configManager.getKumuluzConfigDuration(cp.configurationPath()))
+                .orElse(Duration.of(cacheResult.refreshAfter(), cacheResult.refreshAfterUnit()))
+                .toNanos());
+
+        cacheConfig.setMaxSize(findConfig(metadata, "max-size")
+                .flatMap(cp -> configManager.getKumuluzConfigInteger(cp.configurationPath()))
+                .orElse(cacheResult.maxSize()));
+
+        try {
+            cacheConfig.setEvictionType(findConfig(metadata, "eviction")
+                    .flatMap(cp -> configManager.getKumuluzConfigString(cp.configurationPath()))
+                    .map(configVal -> CacheEvictionType.valueOf(configVal.toUpperCase().replace('-', '_')))
+                    .orElse(CacheEvictionType.TINY_LFU));
+        } catch (IllegalArgumentException e) {
+            log.log(Level.SEVERE, "Could not determine cache eviction policy from config, using " +
+                    CacheEvictionType.TINY_LFU + ".", e);
+            cacheConfig.setEvictionType(CacheEvictionType.TINY_LFU);
+        }
+
+        cacheConfigs.put(metadata.getIdentifier(), cacheConfig);
+    }
+
+    public CacheConfig getCacheConfig(String key) {
+        return cacheConfigs.get(key);
+    }
+
+    private Optional<ConfigurationProperty> findConfig(ExecutionMetadata metadata, String propertyPath) {
+        return configManager.findKumuluzConfig(metadata.getCommandKey(), metadata.getGroupKey(),
+                FaultToleranceType.CACHE, propertyPath);
+    }
+}
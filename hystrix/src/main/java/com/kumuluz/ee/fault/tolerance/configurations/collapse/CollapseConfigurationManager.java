@@ -0,0 +1,175 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.configurations.collapse;
+
+import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
+import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
+import com.kumuluz.ee.fault.tolerance.interfaces.FaultToleranceUtil;
+import com.kumuluz.ee.fault.tolerance.models.ConfigurationProperty;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.FaultToleranceHelper;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Configuration manager for managing collapse configurations
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@ApplicationScoped
+public class CollapseConfigurationManager {
+
+    private static final Logger log = Logger.getLogger(CollapseConfigurationManager.class.getName());
+
+    private ConfigurationUtil config;
+
+    private Map<String, CollapseConfig> collapseConfigs;
+    private Map<String, List<String>> collapseWatches;
+
+    @Inject
+    private FaultToleranceUtil faultToleranceUtil;
+
+    @PostConstruct
+    private void init() {
+        config = ConfigurationUtil.getInstance();
+
+        collapseConfigs = new ConcurrentHashMap<>();
+        collapseWatches = new ConcurrentHashMap<>();
+    }
+
+    public void initializeCollapse(ExecutionMetadata metadata) {
+
+        if (metadata.getCollapse() == null)
+            return;
+
+        CollapseConfig collapseConfig = new CollapseConfig();
+
+        Optional<ConfigurationProperty> windowProperty = faultToleranceUtil.findConfig(metadata.getCommandKey(),
+                metadata.getGroupKey(), FaultToleranceType.COLLAPSE, "window");
+
+        if (windowProperty.isPresent()) {
+            Duration duration = FaultToleranceHelper.parseDuration(config.get(
+                    windowProperty.get().configurationPath()).get());
+
+            collapseConfig.setWindowInMillis(duration.toMillis());
+
+            if (faultToleranceUtil.isWatchEnabled(windowProperty.get())) {
+                initializeWatch(windowProperty.get(), metadata.getIdentifier());
+            }
+        } else {
+            collapseConfig.setWindowInMillis(Duration.of(metadata.getCollapse().window(),
+                    metadata.getCollapse().windowUnit()).toMillis());
+        }
+
+        Optional<ConfigurationProperty> maxBatchSizeProperty = faultToleranceUtil.findConfig(
+                metadata.getCommandKey(), metadata.getGroupKey(), FaultToleranceType.COLLAPSE, "max-batch-size");
+
+        if (maxBatchSizeProperty.isPresent()) {
+            collapseConfig.setMaxBatchSize(config.getInteger(maxBatchSizeProperty.get().configurationPath()).get());
+
+            if (faultToleranceUtil.isWatchEnabled(maxBatchSizeProperty.get())) {
+                initializeWatch(maxBatchSizeProperty.get(), metadata.getIdentifier());
+            }
+        } else {
+            collapseConfig.setMaxBatchSize(metadata.getCollapse().maxBatchSize());
+        }
+
+        collapseConfigs.put(metadata.getIdentifier(), collapseConfig);
+    }
+
+    private void setCollapseConfig(String identifier, String propertyPath, Object value) {
+
+        CollapseConfig collapseConfig = collapseConfigs.get(identifier);
+
+        if (collapseConfig == null)
+            return;
+
+        switch (propertyPath) {
+            case "window":
+                if (value instanceof Duration)
+                    collapseConfig.setWindowInMillis(((Duration) value).toMillis());
+
+                break;
+            case "max-batch-size":
+                if (value instanceof Integer)
+                    collapseConfig.setMaxBatchSize((int) value);
+
+                break;
+            default:
+                break;
+        }
+    }
+
+    public CollapseConfig getCollapseConfig(String key) {
+        return collapseConfigs.get(key);
+    }
+
+    public void initializeWatch(ConfigurationProperty property, String newWatchIdentifier) {
+
+        String configPath = property.configurationPath();
+
+        if (collapseWatches.containsKey(configPath)) {
+            List<String> identifiers = collapseWatches.get(configPath);
+
+            if (identifiers.stream().noneMatch(id -> id.equals(newWatchIdentifier))) {
+                log.finest("Adding identifier '" + newWatchIdentifier + "' to key '" + configPath + "' in map.");
+
+                identifiers.add(newWatchIdentifier);
+            }
+        } else {
+            log.info("Initializing config watch for key path '" + configPath + "'.");
+
+            List<String> identifiers = new CopyOnWriteArrayList<>();
+            identifiers.add(newWatchIdentifier);
+
+            log.finest("Adding identifier '" + newWatchIdentifier + "' to key '" + configPath + "' in map.");
+
+            collapseWatches.put(configPath, identifiers);
+
+            faultToleranceUtil.watch(property);
+        }
+    }
+
+    public void updateProperty(ConfigurationProperty property) {
+
+        String configPath = property.configurationPath();
+
+        log.info("Received update for key path '" + configPath + "'.");
+
+        if (collapseWatches.containsKey(configPath)) {
+            collapseWatches.get(configPath).forEach(id -> {
+                log.info("Updating configuration '" + id + "' with value '" + property.getValue() + "'.");
+
+                setCollapseConfig(id, property.getPropertyPath(), property.getValue());
+            });
+        }
+    }
+}
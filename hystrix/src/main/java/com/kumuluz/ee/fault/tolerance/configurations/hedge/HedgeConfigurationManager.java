@@ -0,0 +1,232 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.configurations.hedge;
+
+import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
+import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryBudget;
+import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
+import com.kumuluz.ee.fault.tolerance.interfaces.FaultToleranceUtil;
+import com.kumuluz.ee.fault.tolerance.models.ConfigurationProperty;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.FaultToleranceHelper;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Logger;
+
+/**
+ * Configuration manager for managing hedge configurations. Every command has its own hedge budget, which limits
+ * hedged attempts to a fraction of the executions of the command.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@ApplicationScoped
+public class HedgeConfigurationManager {
+
+    private static final Logger log = Logger.getLogger(HedgeConfigurationManager.class.getName());
+
+    private static final double DEFAULT_BUDGET_RATIO = 0.1;
+    private static final int DEFAULT_BUDGET_CAPACITY = 10;
+
+    private ConfigurationUtil config;
+
+    private Map<String, HedgeConfig> hedgeConfigs;
+    private Map<String, List<String>> hedgeWatches;
+
+    @Inject
+    private FaultToleranceUtil faultToleranceUtil;
+
+    @PostConstruct
+    private void init() {
+        config = ConfigurationUtil.getInstance();
+
+        hedgeConfigs = new ConcurrentHashMap<>();
+        hedgeWatches = new ConcurrentHashMap<>();
+    }
+
+    public void initializeHedge(ExecutionMetadata metadata) {
+
+        if (metadata.getHedge() == null)
+            return;
+
+        HedgeConfig hedgeConfig = new HedgeConfig();
+
+        Optional<ConfigurationProperty> delayProperty = faultToleranceUtil.findConfig(metadata.getCommandKey(),
+                metadata.getGroupKey(), FaultToleranceType.HEDGE, "delay");
+
+        if (delayProperty.isPresent()) {
+            Duration duration = FaultToleranceHelper.parseDuration(config.get(
+                    delayProperty.get().configurationPath()).get());
+
+            hedgeConfig.setDelayInMillis(duration.toMillis());
+
+            if (faultToleranceUtil.isWatchEnabled(delayProperty.get())) {
+                initializeWatch(delayProperty.get(), metadata.getIdentifier());
+            }
+        } else {
+            hedgeConfig.setDelayInMillis(Duration.of(metadata.getHedge().delay(),
+                    metadata.getHedge().delayUnit()).toMillis());
+        }
+
+        Optional<ConfigurationProperty> percentileProperty = faultToleranceUtil.findConfig(
+                metadata.getCommandKey(), metadata.getGroupKey(), FaultToleranceType.HEDGE, "percentile");
+
+        if (percentileProperty.isPresent()) {
+            double percentile = config.getDouble(percentileProperty.get().configurationPath()).get();
+
+            hedgeConfig.setPercentile(isValidPercentile(metadata.getIdentifier(), percentile) ?
+                    percentile : metadata.getHedge().percentile());
+
+            if (faultToleranceUtil.isWatchEnabled(percentileProperty.get())) {
+                initializeWatch(percentileProperty.get(), metadata.getIdentifier());
+            }
+        } else {
+            hedgeConfig.setPercentile(metadata.getHedge().percentile());
+        }
+
+        hedgeConfig.setBudget(getHedgeBudget(metadata));
+
+        hedgeConfigs.put(metadata.getIdentifier(), hedgeConfig);
+    }
+
+    private RetryBudget getHedgeBudget(ExecutionMetadata metadata) {
+
+        double configuredRatio = faultToleranceUtil.findConfig(metadata.getCommandKey(), metadata.getGroupKey(),
+                FaultToleranceType.HEDGE, "budget.ratio")
+                .flatMap(cp -> config.getDouble(cp.configurationPath()))
+                .orElse(DEFAULT_BUDGET_RATIO);
+
+        // negative ratio would withdraw tokens with every first attempt
+        if (!(configuredRatio >= 0)) {
+            log.severe("Hedge budget ratio of command '" + metadata.getIdentifier() + "' must be greater than or " +
+                    "equal to 0, using " + DEFAULT_BUDGET_RATIO + ".");
+        }
+
+        double ratio = (configuredRatio >= 0) ? configuredRatio : DEFAULT_BUDGET_RATIO;
+
+        int configuredCapacity = faultToleranceUtil.findConfig(metadata.getCommandKey(), metadata.getGroupKey(),
+                FaultToleranceType.HEDGE, "budget.capacity")
+                .flatMap(cp -> config.getInteger(cp.configurationPath()))
+                .orElse(DEFAULT_BUDGET_CAPACITY);
+
+        // empty budget would deny all hedged attempts
+        if (configuredCapacity < 1) {
+            log.severe("Hedge budget capacity of command '" + metadata.getIdentifier() + "' must be greater than " +
+                    "or equal to 1, using " + DEFAULT_BUDGET_CAPACITY + ".");
+        }
+
+        int capacity = (configuredCapacity < 1) ? DEFAULT_BUDGET_CAPACITY : configuredCapacity;
+
+        log.info("Initializing hedge budget of command '" + metadata.getIdentifier() + "' with ratio " + ratio +
+                " and capacity " + capacity + ".");
+
+        return new RetryBudget(ratio, capacity);
+    }
+
+    private void setHedgeConfig(String identifier, String propertyPath, Object value) {
+
+        HedgeConfig hedgeConfig = hedgeConfigs.get(identifier);
+
+        if (hedgeConfig == null)
+            return;
+
+        switch (propertyPath) {
+            case "delay":
+                if (value instanceof Duration)
+                    hedgeConfig.setDelayInMillis(((Duration) value).toMillis());
+
+                break;
+            case "percentile":
+                // values without a decimal point are parsed as integers
+                if (value instanceof Number && isValidPercentile(identifier, ((Number) value).doubleValue()))
+                    hedgeConfig.setPercentile(((Number) value).doubleValue());
+
+                break;
+            default:
+                break;
+        }
+    }
+
+    private boolean isValidPercentile(String identifier, double percentile) {
+
+        if (percentile >= 0 && percentile < 1) {
+            return true;
+        }
+
+        log.severe("Hedge percentile of command '" + identifier + "' must be greater than or equal to 0.0 and " +
+                "less than 1.0, ignoring value " + percentile + ".");
+
+        return false;
+    }
+
+    public HedgeConfig getHedgeConfig(String key) {
+        return hedgeConfigs.get(key);
+    }
+
+    public void initializeWatch(ConfigurationProperty property, String newWatchIdentifier) {
+
+        String configPath = property.configurationPath();
+
+        if (hedgeWatches.containsKey(configPath)) {
+            List<String> identifiers = hedgeWatches.get(configPath);
+
+            if (identifiers.stream().noneMatch(id -> id.equals(newWatchIdentifier))) {
+                log.finest("Adding identifier '" + newWatchIdentifier + "' to key '" + configPath + "' in map.");
+
+                identifiers.add(newWatchIdentifier);
+            }
+        } else {
+            log.info("Initializing config watch for key path '" + configPath + "'.");
+
+            List<String> identifiers = new CopyOnWriteArrayList<>();
+            identifiers.add(newWatchIdentifier);
+
+            log.finest("Adding identifier '" + newWatchIdentifier + "' to key '" + configPath + "' in map.");
+
+            hedgeWatches.put(configPath, identifiers);
+
+            faultToleranceUtil.watch(property);
+        }
+    }
+
+    public void updateProperty(ConfigurationProperty property) {
+
+        String configPath = property.configurationPath();
+
+        log.info("Received update for key path '" + configPath + "'.");
+
+        if (hedgeWatches.containsKey(configPath)) {
+            hedgeWatches.get(configPath).forEach(id -> {
+                log.info("Updating configuration '" + id + "' with value '" + property.getValue() + "'.");
+
+                setHedgeConfig(id, property.getPropertyPath(), property.getValue());
+            });
+        }
+    }
+}
@@ -86,9 +86,10 @@ public class CommandHystrixConfigurationUtil extends AbstractHystrixConfiguratio
             intializeProperty(commandKey, groupKey, type, "enabled", false);
         }
 
-        // fallback needs to be disabled when used with retry
+        // fallback needs to be disabled when used with retry, hedge or collapse
         type = FaultToleranceType.FALLBACK;
-        boolean isFallback = metadata.getRetry() == null &&
+        boolean isFallback = metadata.getRetry() == null && metadata.getHedge() == null &&
+                metadata.getCollapse() == null &&
                 (metadata.getFallbackHandlerClass() != null || metadata.getFallbackMethod() != null);
 
         if (!isFallback) {
@@ -33,6 +33,8 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Logger;
 
 /**
@@ -62,8 +64,8 @@ public class HystrixFaultToleranceConfigurationManager {
         kumuluzConfig = ConfigurationUtil.getInstance();
         hystrixConfig = com.netflix.config.ConfigurationManager.getConfigInstance();
 
-        commandWatchToUpdateMap = new HashMap<>();
-        threadPoolWatchToUpdateMap = new HashMap<>();
+        commandWatchToUpdateMap = new ConcurrentHashMap<>();
+        threadPoolWatchToUpdateMap = new ConcurrentHashMap<>();
     }
 
     public void setHystrixConfig(HystrixConfigurationType type, String key, String propertyPath, Object value) {
@@ -162,7 +164,7 @@ public class HystrixFaultToleranceConfigurationManager {
         } else {
             log.info("Initializing config watch for key path '" + configPath + "'.");
 
-            List<ConfigurationProperty> properties = new ArrayList<>();
+            List<ConfigurationProperty> properties = new CopyOnWriteArrayList<>();
             properties.add(destProperty);
 
             log.finest("Adding key path '" + newPropertyKeyPath + "' to key '" + configPath + "' in map.");
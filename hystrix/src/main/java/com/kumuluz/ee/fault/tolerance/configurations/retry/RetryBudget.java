@@ -0,0 +1,78 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.configurations.retry;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket limiting the load added by retries. Every first attempt deposits a fraction of a token defined by
+ * the ratio and every retry withdraws a whole token. When the bucket is empty, retries are denied. Also used to
+ * limit hedged attempts of the hedge pattern.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class RetryBudget {
+
+    // tokens are kept in thousandths, so fractional deposits can be made with integer operations
+    private static final long TOKEN = 1000;
+
+    private final long deposit;
+    private final long capacity;
+
+    private final AtomicLong balance;
+
+    public RetryBudget(double ratio, int capacity) {
+        this.deposit = Math.round(ratio * TOKEN);
+        this.capacity = capacity * TOKEN;
+        this.balance = new AtomicLong(this.capacity);
+    }
+
+    public void deposit() {
+
+        long current;
+        do {
+            current = balance.get();
+
+            if (current >= capacity) {
+                return;
+            }
+        } while (!balance.compareAndSet(current, Math.min(capacity, current + deposit)));
+    }
+
+    public boolean tryWithdraw() {
+
+        long current;
+        do {
+            current = balance.get();
+
+            if (current < TOKEN) {
+                return false;
+            }
+        } while (!balance.compareAndSet(current, current - TOKEN));
+
+        return true;
+    }
+
+    public long getAvailableRetries() {
+        return balance.get() / TOKEN;
+    }
+}
@@ -11,9 +11,11 @@ public class RetryConfig {
     private final Class<? extends Throwable>[] retryOn;
     private final Class<? extends Throwable>[] abortOn;
 
-    private int maxRetries;
-    private long delayInMillis;
-    private long jitterInMillis;
+    private volatile int maxRetries;
+    private volatile long delayInMillis;
+    private volatile long jitterInMillis;
+
+    private RetryBudget budget;
 
     public RetryConfig(Class<? extends Throwable>[] retryOn, Class<? extends Throwable>[] abortOn) {
         this.retryOn = retryOn;
@@ -51,4 +53,12 @@ public class RetryConfig {
     public void setJitterInMillis(long jitterInMillis) {
         this.jitterInMillis = jitterInMillis;
     }
+
+    public RetryBudget getBudget() {
+        return budget;
+    }
+
+    public void setBudget(RetryBudget budget) {
+        this.budget = budget;
+    }
 }
@@ -22,6 +22,7 @@ package com.kumuluz.ee.fault.tolerance.configurations.retry;
 
 import com.kumuluz.ee.configuration.utils.ConfigurationUtil;
 import com.kumuluz.ee.fault.tolerance.enums.FaultToleranceType;
+import com.kumuluz.ee.fault.tolerance.enums.RetryBudgetScope;
 import com.kumuluz.ee.fault.tolerance.interfaces.FaultToleranceUtil;
 import com.kumuluz.ee.fault.tolerance.models.ConfigurationProperty;
 import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
@@ -32,6 +33,9 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
@@ -46,10 +50,13 @@ public class RetryConfigurationManager {
 
     private static final Logger log = Logger.getLogger(RetryConfigurationManager.class.getName());
 
+    private static final int DEFAULT_BUDGET_CAPACITY = 100;
+
     private ConfigurationUtil config;
 
     private Map<String, RetryConfig> retryConfigs;
     private Map<String, List<String>> retryWatches;
+    private Map<String, RetryBudget> retryBudgets;
 
     @Inject
     private FaultToleranceUtil faultToleranceUtil;
@@ -58,8 +65,9 @@ public class RetryConfigurationManager {
     private void init() {
         config = ConfigurationUtil.getInstance();
 
-        retryConfigs = new HashMap<>();
-        retryWatches = new HashMap<>();
+        retryConfigs = new ConcurrentHashMap<>();
+        retryWatches = new ConcurrentHashMap<>();
+        retryBudgets = new HashMap<>();
     }
 
     public void initializeRetry(ExecutionMetadata metadata) {
@@ -78,7 +86,7 @@ public class RetryConfigurationManager {
                     .configurationPath()).get());
 
             if (faultToleranceUtil.isWatchEnabled(maxRetriesProperty.get())) {
-                initializeWatch(maxRetriesProperty.get(), metadata.getCommandKey());
+                initializeWatch(maxRetriesProperty.get(), metadata.getIdentifier());
             }
         } else {
             retryConfig.setMaxRetries(metadata.getRetry().maxRetries());
@@ -94,7 +102,7 @@ public class RetryConfigurationManager {
             retryConfig.setDelayInMillis(duration.toMillis());
 
             if (faultToleranceUtil.isWatchEnabled(delayProperty.get())) {
-                initializeWatch(delayProperty.get(), metadata.getCommandKey());
+                initializeWatch(delayProperty.get(), metadata.getIdentifier());
             }
         } else {
             retryConfig.setDelayInMillis(Duration.of(metadata.getRetry().delay(),
@@ -111,25 +119,89 @@ public class RetryConfigurationManager {
             retryConfig.setJitterInMillis(duration.toMillis());
 
             if (faultToleranceUtil.isWatchEnabled(jitterProperty.get())) {
-                initializeWatch(jitterProperty.get(), metadata.getCommandKey());
+                initializeWatch(jitterProperty.get(), metadata.getIdentifier());
             }
         } else {
             retryConfig.setJitterInMillis(Duration.of(metadata.getRetry().jitter(),
                     metadata.getRetry().jitterDelayUnit()).toMillis());
         }
 
+        retryConfig.setBudget(getRetryBudget(metadata));
+
         retryConfigs.put(metadata.getIdentifier(), retryConfig);
     }
 
+    private RetryBudget getRetryBudget(ExecutionMetadata metadata) {
+
+        Optional<ConfigurationProperty> ratioProperty = faultToleranceUtil.findConfig(metadata.getCommandKey(),
+                metadata.getGroupKey(), FaultToleranceType.RETRY, "budget.ratio");
+
+        if (!ratioProperty.isPresent())
+            return null;
+
+        double ratio = config.getDouble(ratioProperty.get().configurationPath()).get();
+
+        // negative ratio would withdraw tokens with every first attempt
+        if (!(ratio >= 0)) {
+            log.severe("Retry budget ratio of command '" + metadata.getIdentifier() + "' must be greater than or " +
+                    "equal to 0, retry budget is disabled.");
+            return null;
+        }
+
+        int configuredCapacity = faultToleranceUtil.findConfig(metadata.getCommandKey(), metadata.getGroupKey(),
+                FaultToleranceType.RETRY, "budget.capacity")
+                .flatMap(cp -> config.getInteger(cp.configurationPath()))
+                .orElse(DEFAULT_BUDGET_CAPACITY);
+
+        // empty budget would deny all retries
+        if (configuredCapacity < 1) {
+            log.severe("Retry budget capacity of command '" + metadata.getIdentifier() + "' must be greater than " +
+                    "or equal to 1, using " + DEFAULT_BUDGET_CAPACITY + ".");
+        }
+
+        int capacity = (configuredCapacity < 1) ? DEFAULT_BUDGET_CAPACITY : configuredCapacity;
+
+        RetryBudgetScope scope;
+
+        try {
+            scope = faultToleranceUtil.findConfig(metadata.getCommandKey(), metadata.getGroupKey(),
+                    FaultToleranceType.RETRY, "budget.scope")
+                    .flatMap(cp -> config.get(cp.configurationPath()))
+                    .map(value -> RetryBudgetScope.valueOf(value.toUpperCase()))
+                    .orElse(RetryBudgetScope.GROUP);
+        } catch (IllegalArgumentException e) {
+            log.log(Level.SEVERE, "Could not determine retry budget scope from config, using " +
+                    RetryBudgetScope.GROUP + " scope.", e);
+            scope = RetryBudgetScope.GROUP;
+        }
+
+        String budgetKey = scope + ":" + ((scope == RetryBudgetScope.GROUP) ?
+                metadata.getGroupKey() : metadata.getIdentifier());
+
+        return retryBudgets.computeIfAbsent(budgetKey, key -> {
+            log.info("Initializing retry budget '" + key + "' with ratio " + ratio + " and capacity " + capacity +
+                    ".");
+
+            return new RetryBudget(ratio, capacity);
+        });
+    }
+
     public void setRetryConfig(ConfigurationProperty property, Object value) {
 
-        if (property.getType() != FaultToleranceType.RETRY ||
-                !retryConfigs.containsKey(property.getIdentifier()))
+        if (property.getType() != FaultToleranceType.RETRY)
             return;
 
-        RetryConfig retryConfig = retryConfigs.get(property.getIdentifier());
+        setRetryConfig(property.getIdentifier(), property.getPropertyPath(), value);
+    }
+
+    private void setRetryConfig(String identifier, String propertyPath, Object value) {
+
+        RetryConfig retryConfig = retryConfigs.get(identifier);
 
-        switch (property.getPropertyPath()) {
+        if (retryConfig == null)
+            return;
+
+        switch (propertyPath) {
             case "max-retries":
                 if (value instanceof Integer)
                     retryConfig.setMaxRetries((int) value);
@@ -154,27 +226,27 @@ public class RetryConfigurationManager {
         return retryConfigs.get(key);
     }
 
-    public void initializeWatch(ConfigurationProperty property, String newWatchCommandKey) {
+    public void initializeWatch(ConfigurationProperty property, String newWatchIdentifier) {
 
         String configPath = property.configurationPath();
 
         if (retryWatches.containsKey(configPath)) {
-            List<String> commandKeys = retryWatches.get(configPath);
+            List<String> identifiers = retryWatches.get(configPath);
 
-            if (commandKeys.stream().noneMatch(ck -> ck.equals(newWatchCommandKey))) {
-                log.finest("Adding command key '" + newWatchCommandKey + "' to key '" + configPath + "' in map.");
+            if (identifiers.stream().noneMatch(id -> id.equals(newWatchIdentifier))) {
+                log.finest("Adding identifier '" + newWatchIdentifier + "' to key '" + configPath + "' in map.");
 
-                commandKeys.add(newWatchCommandKey);
+                identifiers.add(newWatchIdentifier);
             }
         } else {
             log.info("Initializing config watch for key path '" + configPath + "'.");
 
-            List<String> commandKeys = new ArrayList<>();
-            commandKeys.add(newWatchCommandKey);
+            List<String> identifiers = new CopyOnWriteArrayList<>();
+            identifiers.add(newWatchIdentifier);
 
-            log.finest("Adding key path '" + newWatchCommandKey + "' to key '" + configPath + "' in map.");
+            log.finest("Adding identifier '" + newWatchIdentifier + "' to key '" + configPath + "' in map.");
 
-            retryWatches.put(configPath, commandKeys);
+            retryWatches.put(configPath, identifiers);
 
             faultToleranceUtil.watch(property);
         }
@@ -187,13 +259,10 @@ public class RetryConfigurationManager {
         log.info("Received update for key path '" + configPath + "'.");
 
         if (retryWatches.containsKey(configPath)) {
-            retryWatches.get(configPath).forEach(ck -> {
-                log.info("Updating configuration key '" + ck + "' with value '" + property.getValue() + "'.");
-
-                ConfigurationProperty commandProperty = new ConfigurationProperty(ck, null, property.getType(),
-                        property.getPropertyPath());
+            retryWatches.get(configPath).forEach(id -> {
+                log.info("Updating configuration '" + id + "' with value '" + property.getValue() + "'.");
 
-                setRetryConfig(commandProperty, property.getValue());
+                setRetryConfig(id, property.getPropertyPath(), property.getValue());
             });
         }
     }
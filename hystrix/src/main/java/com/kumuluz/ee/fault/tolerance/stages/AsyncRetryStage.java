@@ -0,0 +1,175 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryConfig;
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutionStage;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Execution plan stage retrying asynchronous executions. Attempts are chained to a {@link CompletableFuture} and
+ * retries are scheduled on a shared scheduler, so no thread is held while waiting for the retry delay. An attempt
+ * failing synchronously, e.g. rejected by the bulkhead, is handled the same as an attempt failing asynchronously.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class AsyncRetryStage extends RetryStage {
+
+    private final AsyncExecutionStage next;
+    private final ScheduledExecutorService scheduler;
+
+    public AsyncRetryStage(AsyncExecutionStage next, ScheduledExecutorService scheduler, ExecutionMetadata metadata,
+                           RetryConfig retryConfig) {
+        super(next, metadata, retryConfig);
+
+        this.next = next;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) {
+
+        RetriedExecution execution = new RetriedExecution(invocationContext, requestContext);
+        execution.attempt(1);
+
+        return execution.result;
+    }
+
+    /**
+     * State of a single retried execution. Cancelling the result cancels the running attempt and the scheduled retry.
+     */
+    private class RetriedExecution {
+
+        private final InvocationContext invocationContext;
+        private final RequestContext requestContext;
+        private final CompletableFuture<Object> result;
+        private final long executionStart;
+
+        private volatile CompletableFuture<Object> currentAttempt;
+        private volatile ScheduledFuture<?> scheduledRetry;
+
+        private RetriedExecution(InvocationContext invocationContext, RequestContext requestContext) {
+            this.invocationContext = invocationContext;
+            this.requestContext = requestContext;
+            this.result = new CompletableFuture<>();
+            this.executionStart = System.nanoTime();
+
+            result.whenComplete((value, t) -> {
+                if (result.isCancelled()) {
+                    cancelAttempts();
+                }
+            });
+        }
+
+        private void attempt(int execCnt) {
+
+            if (result.isDone()) {
+                // cancelled by the caller
+                return;
+            }
+
+            markAttempt(execCnt);
+
+            CompletableFuture<Object> attempt;
+
+            try {
+                attempt = next.executeAsync(invocationContext, requestContext);
+            } catch (RuntimeException | Error e) {
+                // e.g. rejected by the bulkhead, handled the same as a failed attempt
+                attempt = new CompletableFuture<>();
+                attempt.completeExceptionally(e);
+            }
+
+            currentAttempt = attempt;
+
+            if (result.isDone()) {
+                // cancelled while the attempt was starting
+                attempt.cancel(true);
+            }
+
+            attempt.whenComplete((value, t) -> complete(execCnt, value, t));
+        }
+
+        private void complete(int execCnt, Object value, Throwable t) {
+
+            if (t == null) {
+                markSucceeded(execCnt);
+                result.complete(value);
+
+                return;
+            }
+
+            if (result.isDone()) {
+                // failure of a cancelled attempt
+                return;
+            }
+
+            Throwable cause = CompletionUtil.unwrap(t);
+
+            try {
+                if (isRetryAllowed(cause, execCnt, executionStart)) {
+                    // retry is allowed, schedule after delay and jitter
+                    scheduledRetry = scheduler.schedule(() -> attempt(execCnt + 1), getRetryDelayInMillis(),
+                            TimeUnit.MILLISECONDS);
+
+                    if (result.isDone()) {
+                        // cancelled while the retry was being scheduled
+                        scheduledRetry.cancel(false);
+                    }
+                } else if (fallbackDefined) {
+                    // retry is not allowed, fallback is set and can be executed
+                    CompletionUtil.completeWithFallback(cause, metadata, fallbackMetricsCollection,
+                            invocationContext, null, result);
+                } else {
+                    // retry is not allowed, fallback is not set
+                    markFailed();
+                    result.completeExceptionally(cause);
+                }
+            } catch (RuntimeException | Error e) {
+                // e.g. scheduler was shut down
+                result.completeExceptionally(e);
+            }
+        }
+
+        private void cancelAttempts() {
+
+            ScheduledFuture<?> retry = scheduledRetry;
+
+            if (retry != null) {
+                retry.cancel(false);
+            }
+
+            CompletableFuture<Object> attempt = currentAttempt;
+
+            if (attempt != null) {
+                attempt.cancel(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.commands.FallbackHelper;
+import com.kumuluz.ee.fault.tolerance.configurations.cache.CacheConfig;
+import com.kumuluz.ee.fault.tolerance.enums.CacheEvictionType;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.CacheMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Execution plan stage returning cached results of the method. Successful results are cached by the target instance
+ * and the parameters of the invocation, so invocations with cached results are not executed by the rest of the plan and do not take
+ * bulkhead permits or attempts of the circuit breaker. Results provided by the fallback are not cached.
+ * <p>
+ * When refreshing is enabled, a cached result older than the refresh time is still returned, but the method is
+ * executed in the background and its result replaces the cached result, so frequently requested results do not
+ * expire. Refreshes are new invocations of the method implementation in the bean class with the captured target and
+ * parameters, they do not proceed with the invocation context of the request which found the result.
+ * <p>
+ * Results of different instances of a dependent or otherwise scoped bean are cached separately. Cached results keep
+ * their target instance reachable until they are evicted or expire.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CacheStage implements ExecutionStage {
+
+    private static final Logger log = Logger.getLogger(CacheStage.class.getName());
+
+    private final ExecutionStage next;
+    private final Executor refreshExecutor;
+    private final ExecutionMetadata metadata;
+    private final ResultCache cache;
+    private final long refreshAfterInNanos;
+
+    private final CacheMetricsCollection metricsCollection;
+
+    public CacheStage(ExecutionStage next, Executor refreshExecutor, ExecutionMetadata metadata,
+                      CacheConfig cacheConfig) {
+        this.next = next;
+        this.refreshExecutor = refreshExecutor;
+        this.metadata = metadata;
+        this.refreshAfterInNanos = cacheConfig.getRefreshAfterInNanos();
+        this.metricsCollection = metadata.getCacheMetricsCollection();
+
+        Runnable evictionListener = (metricsCollection == null) ? () -> {
+        } : () -> metricsCollection.getEvictions().inc();
+
+        this.cache = (cacheConfig.getEvictionType() == CacheEvictionType.LRU) ?
+                new LruResultCache(cacheConfig.getMaxSize(), cacheConfig.getTtlInNanos(), evictionListener) :
+                new TinyLfuResultCache(cacheConfig.getMaxSize(), cacheConfig.getTtlInNanos(), evictionListener);
+
+        if (metricsCollection != null) {
+            metricsCollection.registerSizeMetrics(cache::size);
+        }
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) throws Exception {
+
+        CacheKey key = new CacheKey(invocationContext.getTarget(), invocationContext.getParameters().clone());
+        CachedResult cachedResult = cache.get(key);
+
+        if (cachedResult != null) {
+            if (metricsCollection != null) {
+                metricsCollection.getHits().inc();
+            }
+
+            if (refreshAfterInNanos > 0 && cachedResult.isOlderThan(refreshAfterInNanos, System.nanoTime()) &&
+                    cachedResult.startRefresh()) {
+                InvocationContext refreshContext = new DirectInvocationContext(invocationContext,
+                        metadata.getTargetMethodHandle(), invocationContext.getParameters().clone());
+
+                refreshExecutor.execute(() -> refresh(key, cachedResult, refreshContext, requestContext));
+            }
+
+            return metadata.isAsynchronous() ?
+                    CompletableFuture.completedFuture(cachedResult.getValue()) :
+                    cachedResult.getValue();
+        }
+
+        if (metricsCollection != null) {
+            metricsCollection.getMisses().inc();
+        }
+
+        Object result = next.execute(invocationContext, requestContext);
+
+        cacheWhenComplete(key, invocationContext, result, null);
+
+        return result;
+    }
+
+    private void refresh(CacheKey key, CachedResult cachedResult, InvocationContext refreshContext,
+                         RequestContext requestContext) {
+
+        boolean requestContextActivated = false;
+
+        try {
+            if (!requestContext.isActive()) {
+                requestContext.activate();
+                requestContextActivated = true;
+            }
+
+            Object result = next.execute(refreshContext, requestContext);
+
+            cacheWhenComplete(key, refreshContext, result, cachedResult);
+        } catch (Exception e) {
+            log.log(Level.FINEST, "Refresh of cached result of command '" + metadata.getIdentifier() +
+                    "' failed.", e);
+
+            cachedResult.refreshFailed();
+        } finally {
+            if (requestContextActivated && requestContext.isActive()) {
+                requestContext.deactivate();
+            }
+        }
+    }
+
+    /**
+     * Caches the result of the invocation, results of asynchronous methods are cached when they complete.
+     */
+    private void cacheWhenComplete(CacheKey key, InvocationContext invocationContext, Object result,
+                                   CachedResult refreshedResult) {
+
+        if (metadata.isAsynchronous()) {
+            // plans of asynchronous methods complete with the result of the method
+            CompletionUtil.whenComplete(result, (value, t) ->
+                    cache(key, invocationContext, value, t, refreshedResult));
+        } else {
+            cache(key, invocationContext, result, null, refreshedResult);
+        }
+    }
+
+    private void cache(CacheKey key, InvocationContext invocationContext, Object value, Throwable cause,
+                       CachedResult refreshedResult) {
+
+        if (cause == null && !FallbackHelper.isFallbackExecuted(invocationContext)) {
+            cache.put(key, new CachedResult(value));
+        } else if (refreshedResult != null) {
+            refreshedResult.refreshFailed();
+        }
+    }
+
+    /**
+     * Target instance of an invocation compared by identity and its parameters compared by their values, including
+     * values of arrays
+     */
+    private static class CacheKey {
+
+        private final Object target;
+        private final Object[] parameters;
+        private final int hashCode;
+
+        private CacheKey(Object target, Object[] parameters) {
+            this.target = target;
+            this.parameters = parameters;
+            this.hashCode = 31 * System.identityHashCode(target) + Arrays.deepHashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof CacheKey)) {
+                return false;
+            }
+
+            CacheKey other = (CacheKey) o;
+
+            return target == other.target && Arrays.deepEquals(parameters, other.parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Result of a method cached in a {@link ResultCache}.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CachedResult {
+
+    private final Object value;
+    private final long cachedTime;
+    private final AtomicBoolean refreshing;
+
+    public CachedResult(Object value) {
+        this.value = value;
+        this.cachedTime = System.nanoTime();
+        this.refreshing = new AtomicBoolean();
+    }
+
+    public Object getValue() {
+        return value;
+    }
+
+    public boolean isOlderThan(long nanos, long now) {
+        return now - cachedTime >= nanos;
+    }
+
+    /**
+     * Claims the refresh of the result. Only one refresh of the result is in progress at a time.
+     *
+     * @return true if the caller should refresh the result
+     */
+    public boolean startRefresh() {
+        return refreshing.compareAndSet(false, true);
+    }
+
+    /**
+     * Releases the claim of a failed refresh, so the result is refreshed again when it is next returned.
+     */
+    public void refreshFailed() {
+        refreshing.set(false);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.configurations.collapse.CollapseConfig;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.HashedWheelTimer;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Execution plan stage of collapsed methods, preceded only by the result cache and invocation metrics, which count
+ * collapsed calls instead of batches. Calls arriving within the window, or until the batch is full, are collected
+ * into a batch, which is executed by the rest of the plan as a single invocation of the batch method.
+ * Results of the batch are completed to the futures of collapsed calls in the order of their parameters, failures
+ * fail all calls of the batch and are handled by the fallback of each call.
+ * <p>
+ * Batches are kept per target instance, so calls of different instances of a dependent or otherwise scoped bean are
+ * never collapsed together and the batch method is invoked on the instance the calls were made on.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CollapseStage implements ExecutionStage {
+
+    private final ExecutionStage next;
+    private final HashedWheelTimer timer;
+    private final ExecutionMetadata metadata;
+    private final CollapseConfig collapseConfig;
+    private final boolean fallbackEnabled;
+
+    private final FallbackMetricsCollection fallbackMetricsCollection;
+
+    // pending batches by their target instance
+    private final Map<Object, Batch> pending = new IdentityHashMap<>();
+
+    public CollapseStage(ExecutionStage next, HashedWheelTimer timer, ExecutionMetadata metadata,
+                         CollapseConfig collapseConfig) {
+        this.next = next;
+        this.timer = timer;
+        this.metadata = metadata;
+        this.collapseConfig = collapseConfig;
+        this.fallbackEnabled = metadata.getFallbackHandlerClass() != null || metadata.getFallbackMethod() != null;
+
+        this.fallbackMetricsCollection = metadata.getFallbackMetricsCollection();
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) {
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        Batch full = null;
+
+        Object target = invocationContext.getTarget();
+
+        synchronized (this) {
+            Batch current = pending.get(target);
+
+            if (current == null) {
+                Batch batch = new Batch(target, requestContext);
+                batch.window = timer.schedule(() -> executeWindow(batch),
+                        TimeUnit.MILLISECONDS.toNanos(collapseConfig.getWindowInMillis()));
+
+                pending.put(target, batch);
+                current = batch;
+            }
+
+            current.add(invocationContext, result);
+
+            if (current.invocationContexts.size() >= collapseConfig.getMaxBatchSize()) {
+                full = current;
+                pending.remove(target);
+            }
+        }
+
+        if (full != null) {
+            full.window.cancel();
+            executeBatch(full);
+        }
+
+        return result;
+    }
+
+    private void executeWindow(Batch batch) {
+
+        synchronized (this) {
+            if (pending.get(batch.target) != batch) {
+                // executed when it was full
+                return;
+            }
+
+            pending.remove(batch.target);
+        }
+
+        executeBatch(batch);
+    }
+
+    private void executeBatch(Batch batch) {
+
+        Object batchResult;
+
+        try {
+            batchResult = next.execute(new DirectInvocationContext(batch.invocationContexts.get(0),
+                    metadata.getBatchMethodHandle(), new Object[]{batch.parameters}), batch.requestContext);
+        } catch (Exception e) {
+            fail(batch, e);
+            return;
+        }
+
+        CompletionUtil.whenComplete(batchResult, (value, t) -> {
+            if (t != null) {
+                fail(batch, t);
+            } else if (!(value instanceof List) || ((List<?>) value).size() != batch.results.size()) {
+                fail(batch, new FaultToleranceException("Batch method of command '" + metadata.getIdentifier() +
+                        "' should return a list with a result for each of the " + batch.results.size() +
+                        " parameters."));
+            } else {
+                List<?> values = (List<?>) value;
+
+                for (int i = 0; i < values.size(); i++) {
+                    batch.results.get(i).complete(values.get(i));
+                }
+            }
+        });
+    }
+
+    private void fail(Batch batch, Throwable cause) {
+
+        for (int i = 0; i < batch.results.size(); i++) {
+            if (fallbackEnabled) {
+                CompletionUtil.completeWithFallback(cause, metadata, fallbackMetricsCollection,
+                        batch.invocationContexts.get(i), batch.requestContext, batch.results.get(i));
+            } else {
+                batch.results.get(i).completeExceptionally(cause);
+            }
+        }
+    }
+
+    private static class Batch {
+
+        private final Object target;
+        private final RequestContext requestContext;
+        private final List<InvocationContext> invocationContexts = new ArrayList<>();
+        private final List<Object> parameters = new ArrayList<>();
+        private final List<CompletableFuture<Object>> results = new ArrayList<>();
+
+        private HashedWheelTimer.WheelTimeout window;
+
+        private Batch(Object target, RequestContext requestContext) {
+            this.target = target;
+            this.requestContext = requestContext;
+        }
+
+        private void add(InvocationContext invocationContext, CompletableFuture<Object> result) {
+            invocationContexts.add(invocationContext);
+            parameters.add(invocationContext.getParameters()[0]);
+            results.add(result);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.commands.FallbackHelper;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+
+/**
+ * Utilities for completing asynchronous executions with results of asynchronous methods
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CompletionUtil {
+
+    private CompletionUtil() {
+    }
+
+    /**
+     * Invokes the action when the result of an asynchronous method completes. Completion stages are chained without
+     * blocking, other futures are expected to be completed by the time the method returns them.
+     */
+    public static void whenComplete(Object methodResult, BiConsumer<Object, Throwable> action) {
+
+        if (methodResult instanceof CompletionStage) {
+            ((CompletionStage<?>) methodResult).whenComplete((value, t) ->
+                    action.accept(value, (t == null) ? null : unwrap(t)));
+        } else if (methodResult instanceof Future) {
+            Object value;
+            try {
+                value = ((Future<?>) methodResult).get();
+            } catch (ExecutionException e) {
+                action.accept(null, unwrap(e));
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                action.accept(null, e);
+                return;
+            }
+
+            action.accept(value, null);
+        } else {
+            action.accept(methodResult, null);
+        }
+    }
+
+    /**
+     * Executes the fallback of a failed asynchronous execution and completes the result with the result of the
+     * fallback.
+     */
+    public static void completeWithFallback(Throwable cause, ExecutionMetadata metadata,
+                                            FallbackMetricsCollection fallbackMetricsCollection,
+                                            InvocationContext invocationContext, RequestContext requestContext,
+                                            CompletableFuture<Object> result) {
+
+        Object fallbackResult;
+        try {
+            fallbackResult = FallbackHelper.executeFallback(cause, metadata, fallbackMetricsCollection,
+                    invocationContext, requestContext);
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        whenComplete(fallbackResult, (value, t) -> {
+            if (t == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(t);
+            }
+        });
+    }
+
+    public static Throwable unwrap(Throwable t) {
+
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+
+        return t;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+
+import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Invocation context proceeding with a method handle invoked on the target of the original invocation context, instead
+ * of the rest of the interceptor chain. Used for invocations started by the execution plan itself, which must not
+ * proceed with the original invocation context concurrently with its own invocation.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+class DirectInvocationContext implements InvocationContext {
+
+    private final InvocationContext original;
+    private final MethodHandle methodHandle;
+    private Object[] parameters;
+
+    /**
+     * @param original     Invocation context of the intercepted call
+     * @param methodHandle Handle of type (Object target, Object[] parameters)Object
+     * @param parameters   Parameters of the invocation
+     */
+    DirectInvocationContext(InvocationContext original, MethodHandle methodHandle, Object[] parameters) {
+        this.original = original;
+        this.methodHandle = methodHandle;
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return Handle of type (Object target, Object[] parameters)Object this context proceeds with
+     */
+    MethodHandle getMethodHandle() {
+        return methodHandle;
+    }
+
+    @Override
+    public Object getTarget() {
+        return original.getTarget();
+    }
+
+    @Override
+    public Object getTimer() {
+        return original.getTimer();
+    }
+
+    @Override
+    public Method getMethod() {
+        return original.getMethod();
+    }
+
+    @Override
+    public Constructor<?> getConstructor() {
+        return null;
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public void setParameters(Object[] parameters) {
+        this.parameters = parameters;
+    }
+
+    @Override
+    public Map<String, Object> getContextData() {
+        return original.getContextData();
+    }
+
+    @Override
+    public Object proceed() throws Exception {
+
+        try {
+            return methodHandle.invokeExact(original.getTarget(), parameters);
+        } catch (Exception | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new FaultToleranceException(t);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutionStage;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.BulkheadMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.QueueingBulkhead;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Terminal stage of execution plans of asynchronous methods executed with the executor of an
+ * {@link com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutorProvider} instead of a Hystrix command. Every
+ * admitted execution gets its own task, which waits for a permit of the bulkhead before running the next stages, so
+ * the waiting queue consists of the waiting tasks. Cancelling the returned future skips the execution if it is still
+ * waiting and interrupts it if it is running.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class ExecutorStage implements AsyncExecutionStage {
+
+    private final ExecutionStage next;
+    private final Executor executor;
+    private final QueueingBulkhead bulkhead;
+    private final ExecutionMetadata metadata;
+    private final boolean fallbackEnabled;
+
+    private final BulkheadMetricsCollection bulkheadMetricsCollection;
+    private final FallbackMetricsCollection fallbackMetricsCollection;
+
+    /**
+     * @param bulkhead Bulkhead of the method or null if the method is not limited
+     */
+    public ExecutorStage(ExecutionStage next, Executor executor, QueueingBulkhead bulkhead,
+                         ExecutionMetadata metadata) {
+        this.next = next;
+        this.executor = executor;
+        this.bulkhead = bulkhead;
+        this.metadata = metadata;
+        // with retry, hedge or collapse, fallback is executed by one of their stages
+        this.fallbackEnabled = metadata.getRetry() == null && metadata.getHedge() == null &&
+                metadata.getCollapse() == null &&
+                (metadata.getFallbackHandlerClass() != null || metadata.getFallbackMethod() != null);
+
+        this.bulkheadMetricsCollection = metadata.getBulkheadMetricsCollection();
+        this.fallbackMetricsCollection = metadata.getFallbackMetricsCollection();
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) {
+        return executeAsync(invocationContext, requestContext);
+    }
+
+    @Override
+    public CompletableFuture<Object> executeAsync(InvocationContext invocationContext,
+                                                  RequestContext requestContext) {
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+
+        if (bulkhead != null && !bulkhead.tryEnter()) {
+            if (bulkheadMetricsCollection != null) {
+                bulkheadMetricsCollection.getCallsRejected().inc();
+            }
+
+            fail(new BulkheadException("Execution was rejected."), invocationContext, null, result);
+
+            return result;
+        }
+
+        long queuedTime = System.nanoTime();
+
+        if (bulkheadMetricsCollection != null && bulkhead != null) {
+            bulkheadMetricsCollection.getCurrentlyWaiting().increment();
+        }
+
+        Execution execution = new Execution();
+
+        result.whenComplete((value, t) -> {
+            if (t instanceof CancellationException) {
+                execution.cancel();
+            }
+        });
+
+        try {
+            executor.execute(() -> run(invocationContext, requestContext, result, queuedTime, execution));
+        } catch (RejectedExecutionException e) {
+            if (bulkhead != null) {
+                bulkhead.leave();
+
+                if (bulkheadMetricsCollection != null) {
+                    bulkheadMetricsCollection.getCurrentlyWaiting().decrement();
+                    bulkheadMetricsCollection.getCallsRejected().inc();
+                }
+            }
+
+            fail(new BulkheadException(e), invocationContext, null, result);
+        }
+
+        return result;
+    }
+
+    private void run(InvocationContext invocationContext, RequestContext requestContext,
+                     CompletableFuture<Object> result, long queuedTime, Execution execution) {
+
+        if (!execution.start()) {
+            // cancelled while waiting for the executor
+            if (bulkhead != null) {
+                bulkhead.leave();
+
+                if (bulkheadMetricsCollection != null) {
+                    bulkheadMetricsCollection.getCurrentlyWaiting().decrement();
+                }
+            }
+
+            return;
+        }
+
+        if (bulkhead != null) {
+            try {
+                bulkhead.acquire();
+            } catch (InterruptedException e) {
+                execution.finish(null);
+
+                if (bulkheadMetricsCollection != null) {
+                    bulkheadMetricsCollection.getCurrentlyWaiting().decrement();
+                }
+
+                result.completeExceptionally(e);
+                return;
+            }
+        }
+
+        long startTime = System.nanoTime();
+
+        if (bulkheadMetricsCollection != null && bulkhead != null) {
+            bulkheadMetricsCollection.getCurrentlyWaiting().decrement();
+            bulkheadMetricsCollection.getWaitingDuration().update(startTime - queuedTime);
+            bulkheadMetricsCollection.getCallsAccepted().inc();
+            bulkheadMetricsCollection.getCurrentlyExecuting().increment();
+        }
+
+        boolean requestContextActivated = false;
+        Object methodResult = null;
+        Exception failure = null;
+
+        try {
+            if (!requestContext.isActive()) {
+                requestContext.activate();
+                requestContextActivated = true;
+            }
+
+            methodResult = next.execute(invocationContext, requestContext);
+        } catch (Exception e) {
+            failure = e;
+        } finally {
+            execution.finish(methodResult);
+
+            if (requestContextActivated && requestContext.isActive()) {
+                requestContext.deactivate();
+            }
+
+            if (bulkhead != null) {
+                bulkhead.release();
+
+                if (bulkheadMetricsCollection != null) {
+                    bulkheadMetricsCollection.getCurrentlyExecuting().decrement();
+                    bulkheadMetricsCollection.getExecutionDuration().update(System.nanoTime() - startTime);
+                }
+            }
+        }
+
+        if (result.isCancelled()) {
+            // the outcome of a cancelled execution is discarded
+            return;
+        }
+
+        // fallback is executed after the permit is released
+        if (failure != null) {
+            fail(failure, invocationContext, requestContext, result);
+            return;
+        }
+
+        CompletionUtil.whenComplete(methodResult, (value, t) -> {
+            if (t == null) {
+                result.complete(value);
+            } else {
+                fail(t, invocationContext, requestContext, result);
+            }
+        });
+    }
+
+    private void fail(Throwable cause, InvocationContext invocationContext, RequestContext requestContext,
+                      CompletableFuture<Object> result) {
+
+        if (fallbackEnabled) {
+            CompletionUtil.completeWithFallback(cause, metadata, fallbackMetricsCollection, invocationContext,
+                    requestContext, result);
+        } else {
+            result.completeExceptionally(cause);
+        }
+    }
+
+    /**
+     * Running state of a single execution, used to interrupt the thread executing it when it is cancelled.
+     */
+    private static class Execution {
+
+        private Thread thread;
+        private Future<?> methodResult;
+        private boolean cancelled;
+
+        /**
+         * @return False if the execution was cancelled before it started
+         */
+        private synchronized boolean start() {
+
+            if (cancelled) {
+                return false;
+            }
+
+            thread = Thread.currentThread();
+
+            return true;
+        }
+
+        private synchronized void finish(Object methodResult) {
+
+            thread = null;
+
+            if (cancelled) {
+                // the interrupt must not leak to the next task of the executor
+                Thread.interrupted();
+
+                if (methodResult instanceof Future) {
+                    ((Future<?>) methodResult).cancel(true);
+                }
+            } else if (methodResult instanceof Future) {
+                this.methodResult = (Future<?>) methodResult;
+            }
+        }
+
+        private synchronized void cancel() {
+
+            cancelled = true;
+
+            if (thread != null) {
+                thread.interrupt();
+            } else if (methodResult != null) {
+                methodResult.cancel(true);
+            }
+        }
+    }
+}
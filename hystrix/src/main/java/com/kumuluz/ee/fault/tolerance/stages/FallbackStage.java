@@ -0,0 +1,61 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.commands.FallbackHelper;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+
+/**
+ * Execution plan stage executing the fallback of failed invocations in plans executed without a Hystrix command.
+ * Not used with retry, since the retry stage executes the fallback after the last attempt.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class FallbackStage implements ExecutionStage {
+
+    private final ExecutionStage next;
+    private final ExecutionMetadata metadata;
+
+    private final FallbackMetricsCollection fallbackMetricsCollection;
+
+    public FallbackStage(ExecutionStage next, ExecutionMetadata metadata) {
+        this.next = next;
+        this.metadata = metadata;
+
+        this.fallbackMetricsCollection = metadata.getFallbackMetricsCollection();
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) throws Exception {
+
+        try {
+            return next.execute(invocationContext, requestContext);
+        } catch (Exception e) {
+            return FallbackHelper.executeFallback(e, metadata, fallbackMetricsCollection, invocationContext, null);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.configurations.hedge.HedgeConfig;
+import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryBudget;
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.HedgeMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.HashedWheelTimer;
+import org.eclipse.microprofile.metrics.Histogram;
+import org.eclipse.microprofile.metrics.Snapshot;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Execution plan stage hedging asynchronous executions. If the first attempt does not complete within the hedge
+ * delay, a second attempt is started and the result of the attempt which succeeds first is used, while the other
+ * attempt is cancelled. Hedged attempts are executed by the next stage, so they are limited by the same bulkhead,
+ * and are denied when the hedge budget is exhausted.
+ * <p>
+ * Hedged attempts do not proceed with the invocation context of the first attempt, which may still be proceeding.
+ * They invoke the implementation of the method in the bean class directly, bypassing the intercepted subclass of
+ * the container, which would intercept the attempt again. Hedged batches of collapsed calls invoke the batch method
+ * the same way.
+ * <p>
+ * The delay is either fixed or derived from a percentile of execution durations recorded by the timeout metrics of
+ * the method.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HedgeStage implements AsyncExecutionStage {
+
+    private static final Logger log = Logger.getLogger(HedgeStage.class.getName());
+
+    // derived delays are recomputed from a snapshot of execution durations at most once per interval
+    private static final long DERIVED_DELAY_REFRESH_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    // fixed delay is used until enough execution durations are recorded
+    private static final int DERIVED_DELAY_MIN_SAMPLES = 100;
+
+    private final AsyncExecutionStage next;
+    private final HashedWheelTimer timer;
+    private final ExecutionMetadata metadata;
+    private final HedgeConfig hedgeConfig;
+    private final RetryBudget budget;
+    private final boolean fallbackEnabled;
+
+    private final Histogram executionDuration;
+    private final HedgeMetricsCollection hedgeMetricsCollection;
+    private final FallbackMetricsCollection fallbackMetricsCollection;
+
+    private final AtomicLong nextDelayRefreshTime;
+    private volatile long derivedDelayInNanos = -1;
+
+    public HedgeStage(AsyncExecutionStage next, HashedWheelTimer timer, ExecutionMetadata metadata,
+                      HedgeConfig hedgeConfig) {
+        this.next = next;
+        this.timer = timer;
+        this.metadata = metadata;
+        this.hedgeConfig = hedgeConfig;
+        this.budget = hedgeConfig.getBudget();
+        // with retry or collapse, fallback is executed by the retry or the collapse stage
+        this.fallbackEnabled = metadata.getRetry() == null && metadata.getCollapse() == null &&
+                (metadata.getFallbackHandlerClass() != null || metadata.getFallbackMethod() != null);
+
+        this.executionDuration = (metadata.getTimeoutMetricsCollection() == null) ? null :
+                metadata.getTimeoutMetricsCollection().getExecutionDuration();
+        this.hedgeMetricsCollection = metadata.getHedgeMetricsCollection();
+        this.fallbackMetricsCollection = metadata.getFallbackMetricsCollection();
+
+        this.nextDelayRefreshTime = new AtomicLong(System.nanoTime());
+
+        if (hedgeConfig.getPercentile() > 0 && executionDuration == null) {
+            log.warning("Hedge delay of command '" + metadata.getIdentifier() + "' can not be derived from " +
+                    "execution durations without timeout metrics, using fixed delay.");
+        }
+
+        if (hedgeMetricsCollection != null) {
+            hedgeMetricsCollection.registerBudgetMetrics(budget::getAvailableRetries);
+        }
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) {
+        return executeAsync(invocationContext, requestContext);
+    }
+
+    @Override
+    public CompletableFuture<Object> executeAsync(InvocationContext invocationContext,
+                                                  RequestContext requestContext) {
+
+        budget.deposit();
+
+        HedgedExecution execution = new HedgedExecution(invocationContext, requestContext);
+        execution.start();
+
+        return execution.result;
+    }
+
+    private long getDelayInNanos() {
+
+        long fixedDelay = TimeUnit.MILLISECONDS.toNanos(hedgeConfig.getDelayInMillis());
+        double percentile = hedgeConfig.getPercentile();
+
+        if (percentile <= 0 || percentile >= 1 || executionDuration == null) {
+            return fixedDelay;
+        }
+
+        long now = System.nanoTime();
+        long refreshTime = nextDelayRefreshTime.get();
+
+        if (now - refreshTime >= 0 &&
+                nextDelayRefreshTime.compareAndSet(refreshTime, now + DERIVED_DELAY_REFRESH_INTERVAL)) {
+            Snapshot snapshot = executionDuration.getSnapshot();
+
+            derivedDelayInNanos = (snapshot.size() >= DERIVED_DELAY_MIN_SAMPLES) ?
+                    (long) snapshot.getValue(percentile) : -1;
+        }
+
+        long derivedDelay = derivedDelayInNanos;
+
+        return (derivedDelay >= 0) ? derivedDelay : fixedDelay;
+    }
+
+    /**
+     * @return Handle the hedged attempt proceeds with. Invocations started by the plan itself, e.g. batches of
+     * collapsed calls, are hedged with their own handle, other invocations with the method of the bean class.
+     */
+    private MethodHandle getMethodHandle(InvocationContext invocationContext) {
+
+        if (invocationContext instanceof DirectInvocationContext) {
+            return ((DirectInvocationContext) invocationContext).getMethodHandle();
+        }
+
+        return metadata.getTargetMethodHandle();
+    }
+
+    /**
+     * State of a single hedged execution. The first successful attempt completes the result, which cancels the
+     * other attempt. The result fails when no attempt is running anymore, with the failure of the last attempt.
+     */
+    private class HedgedExecution {
+
+        private final InvocationContext invocationContext;
+        private final RequestContext requestContext;
+        private final CompletableFuture<Object> result;
+
+        private CompletableFuture<Object> primary;
+        private volatile CompletableFuture<Object> hedge;
+        private HashedWheelTimer.WheelTimeout hedgeTimeout;
+
+        private int running = 1;
+        private boolean finished;
+
+        private HedgedExecution(InvocationContext invocationContext, RequestContext requestContext) {
+            this.invocationContext = invocationContext;
+            this.requestContext = requestContext;
+            this.result = new CompletableFuture<>();
+        }
+
+        private void start() {
+
+            primary = next.executeAsync(invocationContext, requestContext);
+
+            if (!primary.isDone()) {
+                hedgeTimeout = timer.schedule(this::launchHedge, getDelayInNanos());
+            }
+
+            result.whenComplete((value, t) -> cancelAttempts());
+            primary.whenComplete((value, t) -> complete(false, value, t));
+        }
+
+        private void launchHedge() {
+
+            synchronized (this) {
+                if (finished || result.isDone()) {
+                    return;
+                }
+
+                if (!budget.tryWithdraw()) {
+                    if (hedgeMetricsCollection != null) {
+                        hedgeMetricsCollection.getHedgesDenied().inc();
+                    }
+
+                    return;
+                }
+
+                running++;
+            }
+
+            if (hedgeMetricsCollection != null) {
+                hedgeMetricsCollection.getHedgesLaunched().inc();
+            }
+
+            CompletableFuture<Object> attempt = next.executeAsync(new DirectInvocationContext(invocationContext,
+                    getMethodHandle(invocationContext), invocationContext.getParameters().clone()), requestContext);
+            hedge = attempt;
+
+            if (result.isDone()) {
+                // the first attempt completed while the hedge was starting
+                attempt.cancel(true);
+            }
+
+            attempt.whenComplete((value, t) -> complete(true, value, t));
+        }
+
+        private void complete(boolean isHedge, Object value, Throwable t) {
+
+            if (t == null) {
+                if (result.complete(value) && isHedge && hedgeMetricsCollection != null) {
+                    hedgeMetricsCollection.getHedgesWon().inc();
+                }
+
+                return;
+            }
+
+            synchronized (this) {
+                if (--running > 0 || finished) {
+                    // the other attempt may still succeed
+                    return;
+                }
+
+                finished = true;
+            }
+
+            if (result.isDone()) {
+                // failure of a cancelled attempt
+                return;
+            }
+
+            Throwable cause = CompletionUtil.unwrap(t);
+
+            if (fallbackEnabled) {
+                CompletionUtil.completeWithFallback(cause, metadata, fallbackMetricsCollection, invocationContext,
+                        requestContext, result);
+            } else {
+                result.completeExceptionally(cause);
+            }
+        }
+
+        private void cancelAttempts() {
+
+            if (hedgeTimeout != null) {
+                hedgeTimeout.cancel();
+            }
+
+            primary.cancel(true);
+
+            CompletableFuture<Object> attempt = hedge;
+
+            if (attempt != null) {
+                attempt.cancel(true);
+            }
+        }
+    }
+}
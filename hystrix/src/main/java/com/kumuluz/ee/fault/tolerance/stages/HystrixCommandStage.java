@@ -0,0 +1,253 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.commands.HystrixCommandConfiguration;
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.BulkheadMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.CircuitBreakerMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.TimeoutMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.AdaptiveLimit;
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.KumuluzHystrixGenericCommand;
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.CircuitBreakerOpenException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.jboss.weld.context.RequestContext;
+import rx.Subscription;
+
+import javax.interceptor.InvocationContext;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Logger;
+
+/**
+ * Terminal stage of the execution plan, executes the invocation in a Hystrix command and translates Hystrix
+ * exceptions to fault tolerance exceptions. With an adaptive limit, executions are sampled unless Hystrix rejected
+ * or short circuited them, timed out executions count as dropped.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HystrixCommandStage implements AsyncExecutionStage {
+
+    private static final Logger log = Logger.getLogger(HystrixCommandStage.class.getName());
+
+    private final HystrixCommandConfiguration configuration;
+    private final HystrixCircuitBreaker circuitBreaker;
+    private final AdaptiveLimit adaptiveLimit;
+    private final ExecutionMetadata metadata;
+
+    private final TimeoutMetricsCollection timeoutMetricsCollection;
+    private final CircuitBreakerMetricsCollection cbMetricsCollection;
+    private final BulkheadMetricsCollection bulkheadMetricsCollection;
+    private final FallbackMetricsCollection fallbackMetricsCollection;
+
+    public HystrixCommandStage(HystrixCommandConfiguration configuration, HystrixCircuitBreaker circuitBreaker,
+                               AdaptiveLimit adaptiveLimit, ExecutionMetadata metadata) {
+        this.configuration = configuration;
+        this.circuitBreaker = circuitBreaker;
+        this.adaptiveLimit = adaptiveLimit;
+        this.metadata = metadata;
+
+        this.timeoutMetricsCollection = metadata.getTimeoutMetricsCollection();
+        this.cbMetricsCollection = metadata.getCbMetricsCollection();
+        this.bulkheadMetricsCollection = metadata.getBulkheadMetricsCollection();
+        this.fallbackMetricsCollection = metadata.getFallbackMetricsCollection();
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) throws Exception {
+
+        if (metadata.isAsynchronous()) {
+            return executeAsync(invocationContext, requestContext);
+        }
+
+        KumuluzHystrixGenericCommand cmd = new KumuluzHystrixGenericCommand(configuration, circuitBreaker,
+                bulkheadMetricsCollection, fallbackMetricsCollection, invocationContext, requestContext, metadata);
+
+        long limitStartTime = (adaptiveLimit != null) ? adaptiveLimit.onStart() : 0;
+
+        try {
+            Object returnObject = cmd.execute();
+            updateExecutionSuccessfulMetrics(cmd);
+            return returnObject;
+        } catch (HystrixBadRequestException e) {
+            throw (Exception) e.getCause();
+        } catch (HystrixRuntimeException e) {
+            log.warning("Hystrix runtime exception was thrown because of " + e.getCause().getClass().getName());
+
+            throw processHystrixException(e, cmd);
+        } finally {
+            sampleAdaptiveLimit(cmd, limitStartTime);
+        }
+    }
+
+    /**
+     * Executes the invocation asynchronously. The returned future is completed from the Hystrix observable callbacks
+     * and the result of the method, without blocking any thread. Exception translation and success metrics are
+     * handled in the callbacks. Cancelling the returned future unsubscribes from the command.
+     */
+    @Override
+    public CompletableFuture<Object> executeAsync(InvocationContext invocationContext,
+                                                  RequestContext requestContext) {
+
+        KumuluzHystrixGenericCommand cmd = new KumuluzHystrixGenericCommand(configuration, circuitBreaker,
+                bulkheadMetricsCollection, fallbackMetricsCollection, invocationContext, requestContext, metadata);
+
+        CompletableFuture<Object> result = new CompletableFuture<>();
+        long limitStartTime = (adaptiveLimit != null) ? adaptiveLimit.onStart() : 0;
+
+        if (adaptiveLimit != null) {
+            result.whenComplete((value, t) -> sampleAdaptiveLimit(cmd, limitStartTime));
+        }
+
+        Subscription subscription = cmd.toObservable().subscribe(
+                methodResult -> CompletionUtil.whenComplete(methodResult, (value, t) -> {
+                    if (t == null) {
+                        updateExecutionSuccessfulMetrics(cmd);
+                        result.complete(value);
+                    } else {
+                        result.completeExceptionally(t);
+                    }
+                }),
+                e -> result.completeExceptionally(processObservableException(e, cmd)));
+
+        // Hystrix commands are not interrupted when unsubscribed, but their results are discarded
+        result.whenComplete((value, t) -> {
+            if (t instanceof CancellationException) {
+                subscription.unsubscribe();
+            }
+        });
+
+        return result;
+    }
+
+    private Throwable processObservableException(Throwable e, KumuluzHystrixGenericCommand cmd) {
+
+        BulkheadException bulkheadException = unwrapBulkheadException(e);
+
+        if (bulkheadException != null) {
+            return bulkheadException;
+        } else if (e instanceof HystrixBadRequestException && e.getCause() != null) {
+            return e.getCause();
+        } else if (e instanceof HystrixRuntimeException) {
+            return processHystrixException((HystrixRuntimeException) e, cmd);
+        }
+
+        return e;
+    }
+
+    private BulkheadException unwrapBulkheadException(Throwable e) {
+        Throwable current = e;
+        Throwable previous = null;
+
+        while (previous != current && current != null) {
+
+            if (current instanceof BulkheadException) {
+                return (BulkheadException) current;
+            }
+
+            previous = current;
+            current = current.getCause();
+        }
+
+        return null;
+    }
+
+    private void sampleAdaptiveLimit(HystrixCommand cmd, long startTime) {
+
+        if (adaptiveLimit == null) {
+            return;
+        }
+
+        if (cmd.isResponseRejected() || cmd.isResponseShortCircuited()) {
+            adaptiveLimit.onIgnore();
+        } else {
+            adaptiveLimit.onComplete(startTime, cmd.isResponseTimedOut());
+        }
+    }
+
+    private void updateExecutionSuccessfulMetrics(KumuluzHystrixGenericCommand cmd) {
+        if (timeoutMetricsCollection != null) {
+            updateExecutionDuration(cmd);
+            timeoutMetricsCollection.getCallsNotTimedOut().inc();
+        }
+
+        if (cbMetricsCollection != null) {
+            cbMetricsCollection.getCallsSucceeded().inc();
+        }
+    }
+
+    private void updateExecutionDuration(KumuluzHystrixGenericCommand cmd) {
+
+        long executionTime = cmd.getExecutionTimeInNanos();
+
+        if (executionTime >= 0) {
+            timeoutMetricsCollection.getExecutionDuration().update(executionTime);
+        }
+    }
+
+    private void markBulkheadRejected() {
+        if (bulkheadMetricsCollection != null) {
+            bulkheadMetricsCollection.getCallsRejected().inc();
+
+            if (metadata.isAsynchronous()) {
+                bulkheadMetricsCollection.getCurrentlyWaiting().decrement();
+            }
+        }
+    }
+
+    private Exception processHystrixException(HystrixRuntimeException e, KumuluzHystrixGenericCommand cmd) {
+
+        if (cbMetricsCollection != null) {
+            if (e.getFailureType().equals(HystrixRuntimeException.FailureType.SHORTCIRCUIT)) {
+                cbMetricsCollection.getCallsPrevented().inc();
+            } else {
+                cbMetricsCollection.getCallsFailed().inc();
+            }
+        }
+
+        switch (e.getFailureType()) {
+            case TIMEOUT:
+                if (timeoutMetricsCollection != null) {
+                    updateExecutionDuration(cmd);
+                    timeoutMetricsCollection.getCallsTimedOut().inc();
+                }
+                return new TimeoutException("Execution timed out.");
+            case SHORTCIRCUIT:
+                return new CircuitBreakerOpenException("Circuit breaker is in OPEN state.");
+            case REJECTED_THREAD_EXECUTION:
+                markBulkheadRejected();
+                return new BulkheadException("Thread execution was rejected.");
+            case REJECTED_SEMAPHORE_EXECUTION:
+                markBulkheadRejected();
+                return new BulkheadException("Semaphore execution was rejected.");
+            default:
+                return (Exception) e.getCause();
+        }
+    }
+}
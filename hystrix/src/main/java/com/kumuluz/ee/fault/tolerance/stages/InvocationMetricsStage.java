@@ -0,0 +1,58 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.CommonMetricsCollection;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+
+/**
+ * Execution plan stage counting total and failed invocations of the method
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class InvocationMetricsStage implements ExecutionStage {
+
+    private final ExecutionStage next;
+    private final CommonMetricsCollection metricsCollection;
+
+    public InvocationMetricsStage(ExecutionStage next, CommonMetricsCollection metricsCollection) {
+        this.next = next;
+        this.metricsCollection = metricsCollection;
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) throws Exception {
+
+        metricsCollection.getTotalInvocations().inc();
+
+        try {
+            return next.execute(invocationContext, requestContext);
+        } catch (Exception e) {
+            metricsCollection.getFailedInvocations().inc();
+
+            throw e;
+        }
+    }
+}
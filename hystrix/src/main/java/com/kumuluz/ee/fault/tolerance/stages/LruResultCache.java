@@ -0,0 +1,81 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Result cache evicting the least recently used result when full. Expired results are removed when they are requested
+ * or evicted as least recently used. Access is serialized with a single lock, as each access reorders the entries.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class LruResultCache implements ResultCache {
+
+    private final long ttlInNanos;
+    private final Runnable evictionListener;
+    private final Map<Object, CachedResult> results;
+
+    public LruResultCache(int maxSize, long ttlInNanos, Runnable evictionListener) {
+        this.ttlInNanos = ttlInNanos;
+        this.evictionListener = evictionListener;
+        this.results = new LinkedHashMap<Object, CachedResult>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, CachedResult> eldest) {
+
+                if (size() <= maxSize) {
+                    return false;
+                }
+
+                evictionListener.run();
+
+                return true;
+            }
+        };
+    }
+
+    @Override
+    public synchronized CachedResult get(Object key) {
+
+        CachedResult result = results.get(key);
+
+        if (result != null && result.isOlderThan(ttlInNanos, System.nanoTime())) {
+            results.remove(key);
+            evictionListener.run();
+
+            return null;
+        }
+
+        return result;
+    }
+
+    @Override
+    public synchronized void put(Object key, CachedResult result) {
+        results.put(key, result);
+    }
+
+    @Override
+    public synchronized long size() {
+        return results.size();
+    }
+}
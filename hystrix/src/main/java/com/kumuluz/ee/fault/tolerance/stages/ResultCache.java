@@ -0,0 +1,46 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+/**
+ * Size bounded cache of method results. Results expire after the time to live, which is measured from the time they
+ * were cached.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public interface ResultCache {
+
+    /**
+     * Returns the cached result or null if the result is not cached or has expired.
+     */
+    CachedResult get(Object key);
+
+    /**
+     * Caches the result, replacing the previously cached result of the key.
+     */
+    void put(Object key, CachedResult result);
+
+    /**
+     * Returns the approximate number of cached results.
+     */
+    long size();
+}
@@ -0,0 +1,185 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.commands.FallbackHelper;
+import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryBudget;
+import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryConfig;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.RetryMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Execution plan stage retrying the next stage according to the retry configuration of the method
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class RetryStage implements ExecutionStage {
+
+    private static final Logger log = Logger.getLogger(RetryStage.class.getName());
+
+    private final ExecutionStage next;
+    private final RetryConfig retryConfig;
+    private final long maxDurationInNanos;
+    private final RetryBudget budget;
+
+    protected final ExecutionMetadata metadata;
+    protected final boolean fallbackDefined;
+
+    protected final RetryMetricsCollection retryMetricsCollection;
+    protected final FallbackMetricsCollection fallbackMetricsCollection;
+
+    public RetryStage(ExecutionStage next, ExecutionMetadata metadata, RetryConfig retryConfig) {
+        this.next = next;
+        this.metadata = metadata;
+        this.retryConfig = retryConfig;
+        this.maxDurationInNanos = toNanos(Duration.of(metadata.getRetry().maxDuration(),
+                metadata.getRetry().durationUnit()));
+        this.budget = retryConfig.getBudget();
+        // with collapse, fallback is executed for each collapsed call by the collapse stage
+        this.fallbackDefined = metadata.getCollapse() == null &&
+                (metadata.getFallbackHandlerClass() != null || metadata.getFallbackMethod() != null);
+
+        this.retryMetricsCollection = metadata.getRetryMetricsCollection();
+        this.fallbackMetricsCollection = metadata.getFallbackMetricsCollection();
+
+        if (budget != null && retryMetricsCollection != null) {
+            retryMetricsCollection.registerBudgetMetrics(budget::getAvailableRetries);
+        }
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) throws Exception {
+
+        long executionStart = System.nanoTime();
+
+        for (int execCnt = 1; ; execCnt++) {
+            markAttempt(execCnt);
+
+            try {
+                Object returnObject = next.execute(invocationContext, requestContext);
+
+                markSucceeded(execCnt);
+
+                return returnObject;
+            } catch (Exception e) {
+                if (isRetryAllowed(e, execCnt, executionStart)) {
+                    // retry is allowed, execute after delay and jitter
+                    TimeUnit.MILLISECONDS.sleep(getRetryDelayInMillis());
+                } else if (fallbackDefined) {
+                    // retry is not allowed, fallback is set and can be executed
+                    return FallbackHelper.executeFallback(e, metadata, fallbackMetricsCollection, invocationContext,
+                            null);
+                } else {
+                    // retry is not allowed, fallback is not set
+                    markFailed();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    protected boolean isRetryAllowed(Throwable e, int execCnt, long executionStart) {
+
+        boolean maxDurationExceeded = System.nanoTime() - executionStart > maxDurationInNanos;
+
+        boolean retryAllowed = !isInstance(retryConfig.getAbortOn(), e) &&
+                isInstance(retryConfig.getRetryOn(), e) && !maxDurationExceeded &&
+                (retryConfig.getMaxRetries() == -1 || execCnt < retryConfig.getMaxRetries() + 1);
+
+        if (retryAllowed && budget != null && !budget.tryWithdraw()) {
+            log.finest("Retry budget exhausted, skipping retry of command '" + metadata.getCommandKey() + "'.");
+
+            if (retryMetricsCollection != null) {
+                retryMetricsCollection.getRetriesDenied().inc();
+            }
+
+            return false;
+        }
+
+        return retryAllowed;
+    }
+
+    private static long toNanos(Duration duration) {
+
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    protected long getRetryDelayInMillis() {
+
+        long jitter = (long) (Math.random() * retryConfig.getJitterInMillis() * 2) - retryConfig.getJitterInMillis();
+
+        return retryConfig.getDelayInMillis() + jitter;
+    }
+
+    protected void markAttempt(int execCnt) {
+
+        if (execCnt == 1 && budget != null) {
+            budget.deposit();
+        } else if (execCnt > 1) {
+            log.info("Retry attempt #" + execCnt + " to execute command '" + metadata.getCommandKey() + ".");
+
+            if (retryMetricsCollection != null) {
+                retryMetricsCollection.getRetriesTotal().inc();
+            }
+        }
+    }
+
+    protected void markSucceeded(int execCnt) {
+
+        if (retryMetricsCollection != null) {
+            if (execCnt > 1) {
+                retryMetricsCollection.getCallsSucceededRetried().inc();
+            } else {
+                retryMetricsCollection.getCallsSucceededNotRetried().inc();
+            }
+        }
+    }
+
+    protected void markFailed() {
+
+        if (retryMetricsCollection != null) {
+            retryMetricsCollection.getCallsFailed().inc();
+        }
+    }
+
+    private static boolean isInstance(Class<? extends Throwable>[] classes, Throwable e) {
+        for (Class<? extends Throwable> c : classes) {
+            if (c.isInstance(e)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.BulkheadMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.AdaptiveLimit;
+import com.kumuluz.ee.fault.tolerance.utils.SemaphoreBulkhead;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+
+/**
+ * Execution plan stage executing the invocation on the calling thread if a permit of the semaphore bulkhead is
+ * available and rejecting it otherwise. Used instead of a Hystrix command for synchronous methods which only limit
+ * concurrent executions. With an adaptive limit, accepted executions are sampled and timeouts or
+ * rejections thrown by the invoked method count as dropped.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class SemaphoreBulkheadStage implements ExecutionStage {
+
+    private final ExecutionStage next;
+    private final SemaphoreBulkhead bulkhead;
+    private final AdaptiveLimit adaptiveLimit;
+
+    private final BulkheadMetricsCollection bulkheadMetricsCollection;
+
+    public SemaphoreBulkheadStage(ExecutionStage next, SemaphoreBulkhead bulkhead, AdaptiveLimit adaptiveLimit,
+                                  ExecutionMetadata metadata) {
+        this.next = next;
+        this.bulkhead = bulkhead;
+        this.adaptiveLimit = adaptiveLimit;
+
+        this.bulkheadMetricsCollection = metadata.getBulkheadMetricsCollection();
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) throws Exception {
+
+        if (!bulkhead.tryAcquire()) {
+            if (bulkheadMetricsCollection != null) {
+                bulkheadMetricsCollection.getCallsRejected().inc();
+            }
+
+            throw new BulkheadException("Semaphore execution was rejected.");
+        }
+
+        Exception failure = null;
+        long startTime = 0;
+        long limitStartTime = (adaptiveLimit != null) ? adaptiveLimit.onStart() : 0;
+
+        if (bulkheadMetricsCollection != null) {
+            bulkheadMetricsCollection.getCallsAccepted().inc();
+            bulkheadMetricsCollection.getCurrentlyExecuting().increment();
+            startTime = System.nanoTime();
+        }
+
+        try {
+            return next.execute(invocationContext, requestContext);
+        } catch (Exception e) {
+            failure = e;
+            throw e;
+        } finally {
+            bulkhead.release();
+
+            if (adaptiveLimit != null) {
+                adaptiveLimit.onComplete(limitStartTime,
+                        failure instanceof TimeoutException || failure instanceof BulkheadException);
+            }
+
+            if (bulkheadMetricsCollection != null) {
+                bulkheadMetricsCollection.getCurrentlyExecuting().decrement();
+                bulkheadMetricsCollection.getExecutionDuration().update(System.nanoTime() - startTime);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.metrics.TimeoutMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.HashedWheelTimer;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Execution plan stage executing the invocation on the calling thread with a deadline registered in the shared
+ * timer. When the deadline passes the calling thread is interrupted and the invocation fails with a
+ * {@link TimeoutException}, even if it completed after the interrupt. Used instead of a Hystrix command for
+ * synchronous methods without a circuit breaker. When the timeout is disabled in the configuration, the invocation is
+ * executed without a deadline.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class TimeoutStage implements ExecutionStage {
+
+    private final ExecutionStage next;
+    private final HashedWheelTimer timer;
+    private final BooleanSupplier timeoutEnabled;
+    private final LongSupplier timeoutInMillis;
+
+    private final TimeoutMetricsCollection timeoutMetricsCollection;
+
+    public TimeoutStage(ExecutionStage next, HashedWheelTimer timer, BooleanSupplier timeoutEnabled,
+                        LongSupplier timeoutInMillis, ExecutionMetadata metadata) {
+        this.next = next;
+        this.timer = timer;
+        this.timeoutEnabled = timeoutEnabled;
+        this.timeoutInMillis = timeoutInMillis;
+
+        this.timeoutMetricsCollection = metadata.getTimeoutMetricsCollection();
+    }
+
+    @Override
+    public Object execute(InvocationContext invocationContext, RequestContext requestContext) throws Exception {
+
+        if (!timeoutEnabled.getAsBoolean()) {
+            return next.execute(invocationContext, requestContext);
+        }
+
+        Thread caller = Thread.currentThread();
+        long startTime = System.nanoTime();
+        HashedWheelTimer.WheelTimeout timeout = timer.schedule(caller::interrupt,
+                TimeUnit.MILLISECONDS.toNanos(timeoutInMillis.getAsLong()));
+
+        Object result;
+
+        try {
+            result = next.execute(invocationContext, requestContext);
+        } catch (Throwable t) {
+            if (complete(timeout, startTime)) {
+                throw new TimeoutException("Execution timed out.");
+            }
+
+            throw t;
+        }
+
+        if (complete(timeout, startTime)) {
+            throw new TimeoutException("Execution timed out.");
+        }
+
+        return result;
+    }
+
+    /**
+     * @return True if the invocation timed out
+     */
+    private boolean complete(HashedWheelTimer.WheelTimeout timeout, long startTime) {
+
+        boolean timedOut = !timeout.cancel();
+
+        if (timedOut) {
+            // the interrupt must not leak to the code following the invocation
+            timeout.awaitExpiration();
+            Thread.interrupted();
+        }
+
+        updateMetrics(timedOut, System.nanoTime() - startTime);
+
+        return timedOut;
+    }
+
+    private void updateMetrics(boolean timedOut, long duration) {
+
+        if (timeoutMetricsCollection != null) {
+            timeoutMetricsCollection.getExecutionDuration().update(duration);
+
+            if (timedOut) {
+                timeoutMetricsCollection.getCallsTimedOut().inc();
+            } else {
+                timeoutMetricsCollection.getCallsNotTimedOut().inc();
+            }
+        }
+    }
+}
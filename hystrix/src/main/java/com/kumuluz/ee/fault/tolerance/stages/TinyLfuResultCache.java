@@ -0,0 +1,67 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Result cache backed by Caffeine, which evicts results with the W-TinyLFU policy. Frequently requested results are
+ * retained over recently cached results which are rarely requested, so a scan of many distinct parameters does not
+ * flush the cache.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class TinyLfuResultCache implements ResultCache {
+
+    private final Cache<Object, CachedResult> cache;
+
+    public TinyLfuResultCache(int maxSize, long ttlInNanos, Runnable evictionListener) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttlInNanos, TimeUnit.NANOSECONDS)
+                .removalListener((Object key, CachedResult result, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        evictionListener.run();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public CachedResult get(Object key) {
+        return cache.getIfPresent(key);
+    }
+
+    @Override
+    public void put(Object key, CachedResult result) {
+        cache.put(key, result);
+    }
+
+    @Override
+    public long size() {
+        return cache.estimatedSize();
+    }
+}
@@ -22,21 +22,17 @@ package com.netflix.hystrix;
 
 import com.kumuluz.ee.fault.tolerance.commands.FallbackHelper;
 import com.kumuluz.ee.fault.tolerance.commands.HystrixCommandConfiguration;
-import com.kumuluz.ee.fault.tolerance.commands.SuccessThresholdCircuitBreaker;
 import com.kumuluz.ee.fault.tolerance.metrics.BulkheadMetricsCollection;
+import com.kumuluz.ee.fault.tolerance.metrics.FallbackMetricsCollection;
 import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
-import com.netflix.config.ConfigurationManager;
 import com.netflix.hystrix.exception.HystrixBadRequestException;
-import com.netflix.hystrix.strategy.properties.HystrixPropertiesFactory;
 import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
 import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
 import org.jboss.weld.context.RequestContext;
+import rx.Observable;
 
 import javax.interceptor.InvocationContext;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 
 /**
@@ -54,40 +50,41 @@ public class KumuluzHystrixGenericCommand extends HystrixCommand<Object> {
     private final InvocationContext invocationContext;
     private final RequestContext requestContext;
     private final ExecutionMetadata metadata;
+    private final boolean threadExecution;
 
     private final BulkheadMetricsCollection bulkheadMetricsCollection;
-    private Instant waitingStartTime;
+    private final FallbackMetricsCollection fallbackMetricsCollection;
+    private long waitingStartTime;
 
-    private boolean threadExecution = false;
+    private volatile long executionStartTime;
+    private volatile boolean executionStarted = false;
+    private volatile long executionDuration = -1;
 
-    public KumuluzHystrixGenericCommand(HystrixCommandConfiguration configuration, InvocationContext invocationContext,
-                                        RequestContext requestContext, ExecutionMetadata metadata) {
+    public KumuluzHystrixGenericCommand(HystrixCommandConfiguration configuration,
+                                        HystrixCircuitBreaker circuitBreaker,
+                                        BulkheadMetricsCollection bulkheadMetricsCollection,
+                                        FallbackMetricsCollection fallbackMetricsCollection,
+                                        InvocationContext invocationContext, RequestContext requestContext,
+                                        ExecutionMetadata metadata) {
 
         super(configuration.getGroupKey(), configuration.getCommandKey(), configuration.getThreadPoolKey(),
-                SuccessThresholdCircuitBreaker.CustomCbFactory.getInstance(configuration.getCommandKey(),
-                        configuration.getGroupKey(),
-                        HystrixPropertiesFactory.getCommandProperties(configuration.getCommandKey(), null),
-                        HystrixCommandMetrics.getInstance(configuration.getCommandKey(), configuration.getGroupKey(),
-                                configuration.getThreadPoolKey(),
-                                HystrixPropertiesFactory.getCommandProperties(configuration.getCommandKey(),
-                                        null)),
-                        metadata,
-                        metadata.getCbMetricsCollection(invocationContext.getMethod().getName()).orElse(null)),
-                null,
+                circuitBreaker,
                 null,
                 null,
                 null,
                 null,
                 null,
                 null,
+                configuration.getPropertiesStrategy(),
                 null);
 
         this.invocationContext = invocationContext;
         this.requestContext = requestContext;
         this.metadata = metadata;
+        this.threadExecution = configuration.isThreadExecution();
 
-        this.bulkheadMetricsCollection = metadata.getBulkheadMetricsCollection(invocationContext.getMethod().getName())
-                .orElse(null);
+        this.bulkheadMetricsCollection = bulkheadMetricsCollection;
+        this.fallbackMetricsCollection = fallbackMetricsCollection;
     }
 
     @Override
@@ -95,52 +92,54 @@ public class KumuluzHystrixGenericCommand extends HystrixCommand<Object> {
 
         log.finest("Executing command '" + metadata.getCommandKey() + "'.");
 
-        AtomicLong currentlyExecuting = null;
+        LongAdder currentlyExecuting = null;
         if (this.bulkheadMetricsCollection != null) {
             bulkheadMetricsCollection.getCallsAccepted().inc();
 
             currentlyExecuting = bulkheadMetricsCollection.getCurrentlyExecuting();
-            currentlyExecuting.incrementAndGet();
+            currentlyExecuting.increment();
 
             if (metadata.isAsynchronous()) {
-                bulkheadMetricsCollection.getCurrentlyWaiting().decrementAndGet();
-                bulkheadMetricsCollection.getWaitingDuration()
-                        .update(Duration.between(this.waitingStartTime, Instant.now()).toNanos());
+                bulkheadMetricsCollection.getCurrentlyWaiting().decrement();
+                bulkheadMetricsCollection.getWaitingDuration().update(System.nanoTime() - this.waitingStartTime);
             }
         }
 
         Object result;
-        Object property = ConfigurationManager.getConfigInstance()
-                .getProperty("hystrix.command." + metadata.getCommandKey() + ".execution.isolation.strategy");
-
         boolean requestContextActivated = false;
-        threadExecution = property == null || property == HystrixCommandProperties.ExecutionIsolationStrategy.THREAD;
 
-        Instant startTime = null;
-        Instant endTime = null;
+        long startTime = 0;
+        boolean completed = false;
         try {
             if (threadExecution && !requestContext.isActive()) {
                 requestContext.activate();
                 requestContextActivated = true;
             }
 
-            startTime = Instant.now();
+            startTime = System.nanoTime();
+            executionStartTime = startTime;
+            executionStarted = true;
+
             result = invocationContext.proceed();
-            endTime = Instant.now();
+            completed = true;
         } catch (Throwable e) {
             if (isFallbackInvokeable(e) || e instanceof BulkheadException)
                 throw e;
 
             throw new HystrixBadRequestException(e.getMessage(), e);
         } finally {
+            if (executionStarted) {
+                executionDuration = System.nanoTime() - startTime;
+            }
+
             if (requestContextActivated && requestContext.isActive())
                 requestContext.deactivate();
 
             if (currentlyExecuting != null) {
-                currentlyExecuting.decrementAndGet();
+                currentlyExecuting.decrement();
             }
-            if (bulkheadMetricsCollection != null && startTime != null && endTime != null) {
-                bulkheadMetricsCollection.getExecutionDuration().update(Duration.between(startTime, endTime).toNanos());
+            if (bulkheadMetricsCollection != null && completed) {
+                bulkheadMetricsCollection.getExecutionDuration().update(executionDuration);
             }
         }
 
@@ -155,8 +154,8 @@ public class KumuluzHystrixGenericCommand extends HystrixCommand<Object> {
         Exception executionException = getExceptionFromThrowable(getExecutionException());
 
         try {
-            return FallbackHelper.executeFallback(executionException, metadata, invocationContext,
-                    threadExecution ? requestContext : null);
+            return FallbackHelper.executeFallback(executionException, metadata, fallbackMetricsCollection,
+                    invocationContext, threadExecution ? requestContext : null);
         } catch (Exception e) {
             if (e instanceof FaultToleranceException) {
                 throw (FaultToleranceException) e;
@@ -166,12 +165,29 @@ public class KumuluzHystrixGenericCommand extends HystrixCommand<Object> {
     }
 
     @Override
-    public Future<Object> queue() {
+    public Observable<Object> toObservable() {
         if (this.metadata.isAsynchronous() && this.bulkheadMetricsCollection != null) {
-            this.bulkheadMetricsCollection.getCurrentlyWaiting().incrementAndGet();
-            this.waitingStartTime = Instant.now();
+            this.bulkheadMetricsCollection.getCurrentlyWaiting().increment();
+            this.waitingStartTime = System.nanoTime();
         }
-        return super.queue();
+        return super.toObservable();
+    }
+
+    /**
+     * Returns duration of the method execution in nanoseconds. If the execution did not complete yet, e.g. because
+     * it timed out, time elapsed since its start is returned.
+     *
+     * @return Duration of the execution or -1 if the execution did not start
+     */
+    public long getExecutionTimeInNanos() {
+
+        long duration = executionDuration;
+
+        if (duration >= 0) {
+            return duration;
+        }
+
+        return executionStarted ? System.nanoTime() - executionStartTime : -1;
     }
 
     private boolean isFallbackInvokeable(Throwable e) {
@@ -0,0 +1,142 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.commands;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the failure threshold of the count-based sliding window circuit breaker.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CountSlidingWindowCircuitBreakerTest {
+
+    @Test
+    public void staysClosedUntilWindowIsFull() {
+
+        CountSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(new TestCommandProperties());
+
+        record(circuitBreaker, false, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        record(circuitBreaker, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+        Assert.assertFalse(circuitBreaker.attemptExecution());
+    }
+
+    @Test
+    public void discardsOutcomesOlderThanWindow() {
+
+        CountSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(new TestCommandProperties()
+                .setErrorThresholdPercentage(75));
+
+        record(circuitBreaker, true, true, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        // first success slides out of the window, 3 of 4 outcomes are failures
+        record(circuitBreaker, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void failuresSlideOutOfWindow() {
+
+        CountSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(new TestCommandProperties()
+                .setErrorThresholdPercentage(75));
+
+        record(circuitBreaker, false, false, true, true);
+        record(circuitBreaker, true, true, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void appliesRequestVolumeThresholdChange() {
+
+        TestCommandProperties properties = new TestCommandProperties().setRequestVolumeThreshold(10);
+        CountSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(properties);
+
+        record(circuitBreaker, false, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        // recording starts over in a window of the new size
+        properties.setRequestVolumeThreshold(2);
+        record(circuitBreaker, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        record(circuitBreaker, false, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void appliesErrorThresholdPercentageChange() {
+
+        TestCommandProperties properties = new TestCommandProperties().setErrorThresholdPercentage(75);
+        CountSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(properties);
+
+        record(circuitBreaker, true, true, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        properties.setErrorThresholdPercentage(50);
+        record(circuitBreaker, true);
+        Assert.assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void closesAfterSuccessfulHalfOpenInvocations() throws InterruptedException {
+
+        CountSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(new TestCommandProperties()
+                .setSleepWindowInMillis(10));
+
+        record(circuitBreaker, false, false, false, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+
+        Thread.sleep(20);
+
+        Assert.assertTrue(circuitBreaker.attemptExecution());
+        Assert.assertTrue(circuitBreaker.attemptExecution());
+        Assert.assertFalse(circuitBreaker.attemptExecution());
+
+        record(circuitBreaker, true);
+        Assert.assertTrue(circuitBreaker.isOpen());
+        record(circuitBreaker, true);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        // window was reset when the circuit closed
+        record(circuitBreaker, false, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+    }
+
+    private static CountSlidingWindowCircuitBreaker createCircuitBreaker(TestCommandProperties properties) {
+        return new CountSlidingWindowCircuitBreaker(properties, 2, null);
+    }
+
+    private static void record(CountSlidingWindowCircuitBreaker circuitBreaker, boolean... successes) {
+        for (boolean success : successes) {
+            if (success) {
+                circuitBreaker.markSuccess();
+            } else {
+                circuitBreaker.markNonSuccess();
+            }
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.commands;
+
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.strategy.properties.HystrixProperty;
+
+/**
+ * Circuit breaker properties of a command, which can be changed at runtime.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class TestCommandProperties extends HystrixCommandProperties {
+
+    private volatile int requestVolumeThreshold = 4;
+    private volatile int errorThresholdPercentage = 50;
+    private volatile int sleepWindowInMillis = 5000;
+    private volatile int rollingWindowInMillis = 10000;
+    private volatile int rollingWindowBuckets = 10;
+
+    public TestCommandProperties() {
+        super(HystrixCommandKey.Factory.asKey("circuit-breaker-test"));
+    }
+
+    public TestCommandProperties setRequestVolumeThreshold(int requestVolumeThreshold) {
+        this.requestVolumeThreshold = requestVolumeThreshold;
+        return this;
+    }
+
+    public TestCommandProperties setErrorThresholdPercentage(int errorThresholdPercentage) {
+        this.errorThresholdPercentage = errorThresholdPercentage;
+        return this;
+    }
+
+    public TestCommandProperties setSleepWindowInMillis(int sleepWindowInMillis) {
+        this.sleepWindowInMillis = sleepWindowInMillis;
+        return this;
+    }
+
+    public TestCommandProperties setRollingWindow(int rollingWindowInMillis, int rollingWindowBuckets) {
+        this.rollingWindowInMillis = rollingWindowInMillis;
+        this.rollingWindowBuckets = rollingWindowBuckets;
+        return this;
+    }
+
+    @Override
+    public HystrixProperty<Integer> circuitBreakerRequestVolumeThreshold() {
+        return () -> requestVolumeThreshold;
+    }
+
+    @Override
+    public HystrixProperty<Integer> circuitBreakerErrorThresholdPercentage() {
+        return () -> errorThresholdPercentage;
+    }
+
+    @Override
+    public HystrixProperty<Integer> circuitBreakerSleepWindowInMilliseconds() {
+        return () -> sleepWindowInMillis;
+    }
+
+    @Override
+    public HystrixProperty<Boolean> circuitBreakerForceOpen() {
+        return () -> false;
+    }
+
+    @Override
+    public HystrixProperty<Boolean> circuitBreakerForceClosed() {
+        return () -> false;
+    }
+
+    @Override
+    public HystrixProperty<Integer> metricsRollingStatisticalWindowInMilliseconds() {
+        return () -> rollingWindowInMillis;
+    }
+
+    @Override
+    public HystrixProperty<Integer> metricsRollingStatisticalWindowBuckets() {
+        return () -> rollingWindowBuckets;
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.commands;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the failure threshold of the time-bucketed rolling window circuit breaker.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class TimeSlidingWindowCircuitBreakerTest {
+
+    @Test
+    public void opensWhenThresholdsAreReached() {
+
+        TimeSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(new TestCommandProperties());
+
+        record(circuitBreaker, true, true, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        record(circuitBreaker, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+        Assert.assertFalse(circuitBreaker.attemptExecution());
+    }
+
+    @Test
+    public void discardsBucketsOlderThanWindow() throws InterruptedException {
+
+        TimeSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(new TestCommandProperties()
+                .setRollingWindow(200, 4));
+
+        record(circuitBreaker, false, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        Thread.sleep(300);
+
+        // failures recorded before the window are not counted, 1 of 4 outcomes is a failure
+        record(circuitBreaker, true, true, true, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void appliesRequestVolumeThresholdChange() {
+
+        TestCommandProperties properties = new TestCommandProperties().setRequestVolumeThreshold(10);
+        TimeSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(properties);
+
+        record(circuitBreaker, false, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        properties.setRequestVolumeThreshold(4);
+        record(circuitBreaker, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void appliesErrorThresholdPercentageChange() {
+
+        TestCommandProperties properties = new TestCommandProperties().setErrorThresholdPercentage(75);
+        TimeSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(properties);
+
+        record(circuitBreaker, true, true, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        properties.setErrorThresholdPercentage(50);
+        record(circuitBreaker, true);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        record(circuitBreaker, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void resetsWindowWhenCircuitCloses() throws InterruptedException {
+
+        TimeSlidingWindowCircuitBreaker circuitBreaker = createCircuitBreaker(new TestCommandProperties()
+                .setSleepWindowInMillis(10));
+
+        record(circuitBreaker, false, false, false, false);
+        Assert.assertTrue(circuitBreaker.isOpen());
+
+        Thread.sleep(20);
+
+        Assert.assertTrue(circuitBreaker.attemptExecution());
+        Assert.assertTrue(circuitBreaker.attemptExecution());
+        record(circuitBreaker, true, true);
+        Assert.assertFalse(circuitBreaker.isOpen());
+
+        record(circuitBreaker, false, false, false);
+        Assert.assertFalse(circuitBreaker.isOpen());
+    }
+
+    private static TimeSlidingWindowCircuitBreaker createCircuitBreaker(TestCommandProperties properties) {
+        return new TimeSlidingWindowCircuitBreaker(properties, 2, null);
+    }
+
+    private static void record(TimeSlidingWindowCircuitBreaker circuitBreaker, boolean... successes) {
+        for (boolean success : successes) {
+            if (success) {
+                circuitBreaker.markSuccess();
+            } else {
+                circuitBreaker.markNonSuccess();
+            }
+        }
+    }
+}
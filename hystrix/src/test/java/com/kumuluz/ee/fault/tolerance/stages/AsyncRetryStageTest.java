@@ -0,0 +1,172 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryConfig;
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutionStage;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import org.eclipse.microprofile.faulttolerance.Retry;
+import org.eclipse.microprofile.faulttolerance.exceptions.BulkheadException;
+import org.jboss.weld.context.RequestContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.interceptor.InvocationContext;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Tests retries of asynchronous executions, attempts failing synchronously and cancellation.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class AsyncRetryStageTest {
+
+    private ScheduledThreadPoolExecutor scheduler;
+
+    @BeforeMethod
+    public void setUp() {
+        scheduler = new ScheduledThreadPoolExecutor(1);
+        scheduler.setRemoveOnCancelPolicy(true);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void synchronousFailureIsRetried() throws Exception {
+
+        AtomicInteger attempts = new AtomicInteger();
+        AsyncRetryStage stage = createStage(3, 0, execCnt -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new BulkheadException("Execution was rejected.");
+            }
+
+            return CompletableFuture.completedFuture("ok");
+        });
+
+        Assert.assertEquals(execute(stage).get(5, TimeUnit.SECONDS), "ok");
+        Assert.assertEquals(attempts.get(), 2);
+    }
+
+    @Test
+    public void synchronousFailureWithoutRetriesFailsResult() throws Exception {
+
+        AsyncRetryStage stage = createStage(1, 0, execCnt -> {
+            throw new BulkheadException("Execution was rejected.");
+        });
+
+        try {
+            execute(stage).get(5, TimeUnit.SECONDS);
+            Assert.fail("Execution should fail.");
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof BulkheadException);
+        }
+    }
+
+    @Test
+    public void cancelCancelsRunningAttempt() {
+
+        CompletableFuture<Object> attempt = new CompletableFuture<>();
+        AsyncRetryStage stage = createStage(3, 0, execCnt -> attempt);
+
+        execute(stage).cancel(true);
+
+        Assert.assertTrue(attempt.isCancelled());
+    }
+
+    @Test
+    public void cancelCancelsScheduledRetry() throws Exception {
+
+        AtomicInteger attempts = new AtomicInteger();
+        AsyncRetryStage stage = createStage(3, 10000, execCnt -> {
+            attempts.incrementAndGet();
+
+            CompletableFuture<Object> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new IllegalStateException());
+            return failed;
+        });
+
+        CompletableFuture<Object> result = execute(stage);
+
+        Assert.assertEquals(scheduler.getQueue().size(), 1);
+
+        result.cancel(true);
+
+        Assert.assertTrue(scheduler.getQueue().isEmpty());
+        Assert.assertEquals(attempts.get(), 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> execute(AsyncRetryStage stage) {
+        return (CompletableFuture<Object>) stage.execute(new TestInvocationContext(new Service(), "call"),
+                TestInvocationContext.activeRequestContext());
+    }
+
+    @SuppressWarnings("unchecked")
+    private AsyncRetryStage createStage(int maxRetries, long delayInMillis,
+                                        IntFunction<CompletableFuture<Object>> attempt) {
+
+        ExecutionMetadata metadata = new ExecutionMetadata(Service.class,
+                new TestInvocationContext(new Service(), "call").getMethod(), "Service-call", "Service");
+        metadata.setAsynchronous(true);
+        metadata.setRetry(metadata.getMethod().getAnnotation(Retry.class));
+
+        RetryConfig retryConfig = new RetryConfig(new Class[]{Exception.class}, new Class[0]);
+        retryConfig.setMaxRetries(maxRetries);
+        retryConfig.setDelayInMillis(delayInMillis);
+
+        AtomicInteger execCnt = new AtomicInteger();
+
+        AsyncExecutionStage next = new AsyncExecutionStage() {
+            @Override
+            public CompletableFuture<Object> executeAsync(InvocationContext invocationContext,
+                                                          RequestContext requestContext) {
+                return attempt.apply(execCnt.incrementAndGet());
+            }
+
+            @Override
+            public Object execute(InvocationContext invocationContext, RequestContext requestContext) {
+                return executeAsync(invocationContext, requestContext);
+            }
+        };
+
+        return new AsyncRetryStage(next, scheduler, metadata, retryConfig);
+    }
+
+    public static class Service {
+
+        @Retry
+        public CompletionStage<String> call() {
+            return CompletableFuture.completedFuture("ok");
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.commands.FallbackHelper;
+import com.kumuluz.ee.fault.tolerance.configurations.cache.CacheConfig;
+import com.kumuluz.ee.fault.tolerance.enums.CacheEvictionType;
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests caching, eviction and refreshing of results.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CacheStageTest {
+
+    @Test
+    public void cachesResultsByParameterValues() throws Exception {
+
+        Service service = new Service();
+        CacheStage stage = createStage(createMetadata(), CacheEvictionType.LRU, 10, 0, (ic, rc) -> ic.proceed());
+
+        Object first = execute(stage, service, new int[]{1, 2});
+
+        Assert.assertEquals(execute(stage, service, new int[]{1, 2}), first);
+        Assert.assertEquals(service.calls.get(), 1);
+
+        execute(stage, service, new int[]{2, 1});
+
+        Assert.assertEquals(service.calls.get(), 2);
+    }
+
+    @Test
+    public void cachesResultsPerTarget() throws Exception {
+
+        Service firstService = new Service();
+        Service secondService = new Service();
+        CacheStage stage = createStage(createMetadata(), CacheEvictionType.LRU, 10, 0, (ic, rc) -> ic.proceed());
+
+        execute(stage, firstService, new int[]{1});
+        execute(stage, secondService, new int[]{1});
+        execute(stage, firstService, new int[]{1});
+        execute(stage, secondService, new int[]{1});
+
+        Assert.assertEquals(firstService.calls.get(), 1);
+        Assert.assertEquals(secondService.calls.get(), 1);
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedResult() throws Exception {
+
+        Service service = new Service();
+        CacheStage stage = createStage(createMetadata(), CacheEvictionType.LRU, 2, 0, (ic, rc) -> ic.proceed());
+
+        execute(stage, service, new int[]{1});
+        execute(stage, service, new int[]{2});
+        execute(stage, service, new int[]{1});
+        execute(stage, service, new int[]{3});
+
+        Assert.assertEquals(service.calls.get(), 3);
+
+        execute(stage, service, new int[]{1});
+
+        Assert.assertEquals(service.calls.get(), 3);
+
+        execute(stage, service, new int[]{2});
+
+        Assert.assertEquals(service.calls.get(), 4);
+    }
+
+    @Test
+    public void boundsSizeOfTinyLfuCache() throws Exception {
+
+        TinyLfuResultCache cache = new TinyLfuResultCache(10, TimeUnit.MINUTES.toNanos(1), () -> {
+        });
+
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, new CachedResult(i));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (cache.size() > 10 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        Assert.assertTrue(cache.size() <= 10, "Cache should be bounded, but has " + cache.size() + " results.");
+    }
+
+    @Test
+    public void doesNotCacheFallbackResults() throws Exception {
+
+        Service service = new Service();
+        ExecutionMetadata metadata = createMetadata();
+        metadata.setFallbackMethodHandle(bind("fallback"));
+
+        AtomicInteger executions = new AtomicInteger();
+        CacheStage stage = createStage(metadata, CacheEvictionType.TINY_LFU, 10, 0, (ic, rc) -> {
+            executions.incrementAndGet();
+
+            return FallbackHelper.executeFallback(new IllegalStateException(), metadata, null, ic, rc);
+        });
+
+        Assert.assertEquals(execute(stage, service, new int[]{1}), "fallback");
+        Assert.assertEquals(execute(stage, service, new int[]{1}), "fallback");
+        Assert.assertEquals(executions.get(), 2);
+    }
+
+    @Test
+    public void refreshesResultWithNewInvocation() throws Exception {
+
+        Service service = new Service();
+        ExecutionMetadata metadata = createMetadata();
+        metadata.setTargetMethodHandle(bind("call"));
+
+        List<InvocationContext> executed = new CopyOnWriteArrayList<>();
+        CacheStage stage = createStage(metadata, CacheEvictionType.LRU, 10, 1, (ic, rc) -> {
+            executed.add(ic);
+
+            return ic.proceed();
+        });
+
+        InvocationContext original = new TestInvocationContext(service, "call", (Object) new int[]{1});
+
+        Assert.assertEquals(stage.execute(original, TestInvocationContext.activeRequestContext()), "1:[1]");
+        // cached result is returned and refreshed
+        Assert.assertEquals(execute(stage, service, new int[]{1}), "1:[1]");
+
+        Assert.assertEquals(executed.size(), 2);
+        Assert.assertSame(executed.get(0), original);
+        Assert.assertTrue(executed.get(1) instanceof DirectInvocationContext);
+        Assert.assertSame(executed.get(1).getTarget(), service);
+
+        Assert.assertEquals(execute(stage, service, new int[]{1}), "2:[1]");
+    }
+
+    private static Object execute(CacheStage stage, Service service, int[] parameter) throws Exception {
+        return stage.execute(new TestInvocationContext(service, "call", (Object) parameter),
+                TestInvocationContext.activeRequestContext());
+    }
+
+    private static CacheStage createStage(ExecutionMetadata metadata, CacheEvictionType evictionType, int maxSize,
+                                          long refreshAfterInNanos, ExecutionStage next) {
+
+        CacheConfig cacheConfig = new CacheConfig();
+        cacheConfig.setEvictionType(evictionType);
+        cacheConfig.setMaxSize(maxSize);
+        cacheConfig.setTtlInNanos(TimeUnit.MINUTES.toNanos(1));
+        cacheConfig.setRefreshAfterInNanos(refreshAfterInNanos);
+
+        // refreshes are executed on the calling thread
+        return new CacheStage(next, Runnable::run, metadata, cacheConfig);
+    }
+
+    private static ExecutionMetadata createMetadata() throws Exception {
+        return new ExecutionMetadata(Service.class, Service.class.getMethod("call", int[].class),
+                "Service-call", "Service");
+    }
+
+    private static MethodHandle bind(String name) throws Exception {
+        return MethodHandles.lookup()
+                .findVirtual(Service.class, name, MethodType.methodType(String.class, int[].class))
+                .asSpreader(Object[].class, 1)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+
+    public static class Service {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        public String call(int[] values) {
+            return calls.incrementAndGet() + ":" + Arrays.toString(values);
+        }
+
+        public String fallback(int[] values) {
+            return "fallback";
+        }
+    }
+}
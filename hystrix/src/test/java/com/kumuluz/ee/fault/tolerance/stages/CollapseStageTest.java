@@ -0,0 +1,180 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.configurations.collapse.CollapseConfig;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.HashedWheelTimer;
+import org.eclipse.microprofile.faulttolerance.exceptions.FaultToleranceException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Tests collecting of collapsed calls into batches and completing their results.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class CollapseStageTest {
+
+    private HashedWheelTimer timer;
+
+    @BeforeMethod
+    public void setUp() {
+        timer = new HashedWheelTimer("collapse-test-timer", 1, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void collapsesCallsWithinWindow() throws Exception {
+
+        Service service = new Service();
+        CollapseStage stage = createStage(50, 10);
+
+        List<CompletableFuture<Object>> results = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            results.add(execute(stage, service, i));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            Assert.assertEquals(results.get(i).get(5, TimeUnit.SECONDS), (i + 1) * 10);
+        }
+
+        Assert.assertEquals(service.batches, Collections.singletonList(List.of(1, 2, 3)));
+    }
+
+    @Test
+    public void executesFullBatchWithoutWaitingForWindow() throws Exception {
+
+        Service service = new Service();
+        CollapseStage stage = createStage(TimeUnit.MINUTES.toMillis(1), 2);
+
+        CompletableFuture<Object> first = execute(stage, service, 1);
+        CompletableFuture<Object> second = execute(stage, service, 2);
+        CompletableFuture<Object> third = execute(stage, service, 3);
+
+        Assert.assertEquals(first.getNow(null), 10);
+        Assert.assertEquals(second.getNow(null), 20);
+        Assert.assertFalse(third.isDone());
+        Assert.assertEquals(service.batches, Collections.singletonList(List.of(1, 2)));
+    }
+
+    @Test
+    public void failsBatchOnResultSizeMismatch() throws Exception {
+
+        Service service = new Service();
+        service.dropLastResult = true;
+        CollapseStage stage = createStage(TimeUnit.MINUTES.toMillis(1), 2);
+
+        CompletableFuture<Object> first = execute(stage, service, 1);
+        CompletableFuture<Object> second = execute(stage, service, 2);
+
+        for (CompletableFuture<Object> result : List.of(first, second)) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                Assert.fail("Batch should fail.");
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof FaultToleranceException);
+            }
+        }
+    }
+
+    @Test
+    public void collapsesCallsPerTarget() throws Exception {
+
+        Service firstService = new Service();
+        Service secondService = new Service();
+        CollapseStage stage = createStage(TimeUnit.MINUTES.toMillis(1), 2);
+
+        CompletableFuture<Object> first = execute(stage, firstService, 1);
+        CompletableFuture<Object> second = execute(stage, secondService, 2);
+
+        Assert.assertFalse(first.isDone());
+        Assert.assertFalse(second.isDone());
+
+        execute(stage, firstService, 3);
+        execute(stage, secondService, 4);
+
+        Assert.assertEquals(first.get(5, TimeUnit.SECONDS), 10);
+        Assert.assertEquals(second.get(5, TimeUnit.SECONDS), 20);
+        Assert.assertEquals(firstService.batches, Collections.singletonList(List.of(1, 3)));
+        Assert.assertEquals(secondService.batches, Collections.singletonList(List.of(2, 4)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private CompletableFuture<Object> execute(CollapseStage stage, Service service, int parameter) {
+        return (CompletableFuture<Object>) stage.execute(new TestInvocationContext(service, "call", parameter),
+                TestInvocationContext.activeRequestContext());
+    }
+
+    private CollapseStage createStage(long windowInMillis, int maxBatchSize) throws Exception {
+
+        ExecutionMetadata metadata = new ExecutionMetadata(Service.class,
+                Service.class.getMethod("call", Integer.class), "Service-call", "Service");
+        metadata.setAsynchronous(true);
+        metadata.setBatchMethodHandle(MethodHandles.lookup()
+                .findVirtual(Service.class, "batch", MethodType.methodType(List.class, List.class))
+                .asSpreader(Object[].class, 1)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class)));
+
+        CollapseConfig collapseConfig = new CollapseConfig();
+        collapseConfig.setWindowInMillis(windowInMillis);
+        collapseConfig.setMaxBatchSize(maxBatchSize);
+
+        return new CollapseStage((ic, rc) -> ic.proceed(), timer, metadata, collapseConfig);
+    }
+
+    public static class Service {
+
+        private final List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean dropLastResult = false;
+
+        public CompletionStage<Integer> call(Integer parameter) {
+            throw new IllegalStateException("Collapsed calls should be executed in batches.");
+        }
+
+        public List<Integer> batch(List<Integer> parameters) {
+
+            batches.add(new ArrayList<>(parameters));
+
+            List<Integer> results = parameters.stream().map(p -> p * 10).collect(Collectors.toList());
+
+            return dropLastResult ? results.subList(0, results.size() - 1) : results;
+        }
+    }
+}
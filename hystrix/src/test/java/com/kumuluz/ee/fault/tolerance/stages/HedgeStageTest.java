@@ -0,0 +1,256 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.configurations.collapse.CollapseConfig;
+import com.kumuluz.ee.fault.tolerance.configurations.hedge.HedgeConfig;
+import com.kumuluz.ee.fault.tolerance.configurations.retry.RetryBudget;
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutionStage;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.HashedWheelTimer;
+import org.jboss.weld.context.RequestContext;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.interceptor.InvocationContext;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tests hedged attempts of asynchronous executions.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class HedgeStageTest {
+
+    private HashedWheelTimer timer;
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void setUp() {
+        timer = new HashedWheelTimer("hedge-test-timer", 1, TimeUnit.MILLISECONDS, 64);
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        timer.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void firstSuccessfulAttemptWins() throws Exception {
+
+        Service service = new Service(1);
+        HedgeStage stage = createStage(10, new RetryBudget(0.1, 10));
+
+        Object result = stage.executeAsync(new TestInvocationContext(service, "call", "a"),
+                TestInvocationContext.activeRequestContext()).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(result, "fast:a");
+        Assert.assertTrue(service.interrupted.await(5, TimeUnit.SECONDS), "Slower attempt should be cancelled.");
+        Assert.assertEquals(service.calls.get(), 2);
+    }
+
+    @Test
+    public void cancelCancelsAllAttempts() throws Exception {
+
+        Service service = new Service(Integer.MAX_VALUE);
+        HedgeStage stage = createStage(10, new RetryBudget(0.1, 10));
+
+        CompletableFuture<Object> result = stage.executeAsync(new TestInvocationContext(service, "call", "a"),
+                TestInvocationContext.activeRequestContext());
+
+        awaitCalls(service, 2);
+        result.cancel(true);
+
+        Assert.assertTrue(service.interrupted.await(5, TimeUnit.SECONDS), "Both attempts should be cancelled.");
+    }
+
+    @Test
+    public void hedgeIsDeniedWhenBudgetIsExhausted() throws Exception {
+
+        Service service = new Service(1);
+        service.slowCallDurationInMillis = 100;
+        HedgeStage stage = createStage(10, new RetryBudget(0, 0));
+
+        Object result = stage.executeAsync(new TestInvocationContext(service, "call", "a"),
+                TestInvocationContext.activeRequestContext()).get(5, TimeUnit.SECONDS);
+
+        Assert.assertEquals(result, "slow:a");
+        Assert.assertEquals(service.calls.get(), 1);
+    }
+
+    @Test
+    public void hedgesBatchesOfCollapsedCalls() throws Exception {
+
+        Service service = new Service(1);
+        HedgeStage hedgeStage = createStage(10, new RetryBudget(0.1, 10));
+
+        CollapseConfig collapseConfig = new CollapseConfig();
+        collapseConfig.setWindowInMillis(TimeUnit.MINUTES.toMillis(1));
+        collapseConfig.setMaxBatchSize(2);
+
+        ExecutionMetadata metadata = createMetadata();
+        metadata.setBatchMethodHandle(bind("batch", List.class, List.class));
+
+        CollapseStage collapseStage = new CollapseStage(hedgeStage, timer, metadata, collapseConfig);
+        RequestContext requestContext = TestInvocationContext.activeRequestContext();
+
+        CompletableFuture<?> first = (CompletableFuture<?>) collapseStage.execute(
+                new TestInvocationContext(service, "call", "a"), requestContext);
+        CompletableFuture<?> second = (CompletableFuture<?>) collapseStage.execute(
+                new TestInvocationContext(service, "call", "b"), requestContext);
+
+        Assert.assertEquals(first.get(5, TimeUnit.SECONDS), "fast:a");
+        Assert.assertEquals(second.get(5, TimeUnit.SECONDS), "fast:b");
+        Assert.assertEquals(service.calls.get(), 2);
+        Assert.assertEquals(service.batchCalls.get(), 2);
+    }
+
+    private static void awaitCalls(Service service, int calls) throws InterruptedException {
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+
+        while (service.calls.get() < calls && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+
+        Assert.assertEquals(service.calls.get(), calls);
+    }
+
+    private HedgeStage createStage(long delayInMillis, RetryBudget budget) throws Exception {
+
+        HedgeConfig hedgeConfig = new HedgeConfig();
+        hedgeConfig.setDelayInMillis(delayInMillis);
+        hedgeConfig.setBudget(budget);
+
+        ExecutionMetadata metadata = createMetadata();
+        metadata.setTargetMethodHandle(bind("call", String.class, String.class));
+
+        return new HedgeStage(new ExecutorAttempts(), timer, metadata, hedgeConfig);
+    }
+
+    private static ExecutionMetadata createMetadata() throws Exception {
+
+        ExecutionMetadata metadata = new ExecutionMetadata(Service.class,
+                Service.class.getMethod("call", String.class), "Service-call", "Service");
+        metadata.setAsynchronous(true);
+
+        return metadata;
+    }
+
+    private static MethodHandle bind(String name, Class<?> returnType, Class<?> parameterType) throws Exception {
+        return MethodHandles.lookup()
+                .findVirtual(Service.class, name, MethodType.methodType(returnType, parameterType))
+                .asSpreader(Object[].class, 1)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+    }
+
+    /**
+     * Executes attempts on the executor, cancelling an attempt interrupts its thread.
+     */
+    private class ExecutorAttempts implements AsyncExecutionStage {
+
+        @Override
+        public CompletableFuture<Object> executeAsync(InvocationContext invocationContext,
+                                                      RequestContext requestContext) {
+
+            CompletableFuture<Object> attempt = new CompletableFuture<>();
+            Future<?> task = executor.submit(() -> {
+                try {
+                    attempt.complete(invocationContext.proceed());
+                } catch (Exception e) {
+                    attempt.completeExceptionally(e);
+                }
+            });
+
+            attempt.whenComplete((value, t) -> {
+                if (attempt.isCancelled()) {
+                    task.cancel(true);
+                }
+            });
+
+            return attempt;
+        }
+
+        @Override
+        public Object execute(InvocationContext invocationContext, RequestContext requestContext) {
+            return executeAsync(invocationContext, requestContext);
+        }
+    }
+
+    public static class Service {
+
+        private final int slowCalls;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final AtomicInteger batchCalls = new AtomicInteger();
+        private final CountDownLatch interrupted;
+
+        private volatile long slowCallDurationInMillis = TimeUnit.MINUTES.toMillis(1);
+
+        private Service(int slowCalls) {
+            this.slowCalls = slowCalls;
+            this.interrupted = new CountDownLatch(Math.min(slowCalls, 2));
+        }
+
+        public String call(String parameter) throws InterruptedException {
+            return execute(parameter);
+        }
+
+        public List<String> batch(List<String> parameters) throws InterruptedException {
+
+            batchCalls.incrementAndGet();
+
+            String[] results = new String[parameters.size()];
+            String prefix = execute("").replace(":", "");
+
+            for (int i = 0; i < results.length; i++) {
+                results[i] = prefix + ":" + parameters.get(i);
+            }
+
+            return List.of(results);
+        }
+
+        private String execute(String parameter) throws InterruptedException {
+
+            if (calls.incrementAndGet() <= slowCalls) {
+                try {
+                    Thread.sleep(slowCallDurationInMillis);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+
+                return "slow:" + parameter;
+            }
+
+            return "fast:" + parameter;
+        }
+    }
+}
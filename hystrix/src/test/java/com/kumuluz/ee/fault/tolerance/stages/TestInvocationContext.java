@@ -0,0 +1,123 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import org.jboss.weld.context.RequestContext;
+
+import javax.interceptor.InvocationContext;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Invocation context of a plain target invoking the method reflectively, in place of the interceptor chain of the
+ * container.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class TestInvocationContext implements InvocationContext {
+
+    private final Object target;
+    private final Method method;
+    private final Map<String, Object> contextData = new HashMap<>();
+    private Object[] parameters;
+
+    public TestInvocationContext(Object target, String methodName, Object... parameters) {
+        this.target = target;
+        this.method = findMethod(target.getClass(), methodName);
+        this.parameters = parameters;
+    }
+
+    /**
+     * @return Request context which is always active
+     */
+    public static RequestContext activeRequestContext() {
+        return (RequestContext) Proxy.newProxyInstance(RequestContext.class.getClassLoader(),
+                new Class[]{RequestContext.class}, (proxy, m, args) ->
+                        m.getName().equals("isActive") ? Boolean.TRUE : null);
+    }
+
+    private static Method findMethod(Class<?> type, String methodName) {
+
+        for (Method m : type.getDeclaredMethods()) {
+            if (m.getName().equals(methodName)) {
+                return m;
+            }
+        }
+
+        throw new IllegalArgumentException("Method '" + methodName + "' not found on " + type.getName());
+    }
+
+    @Override
+    public Object getTarget() {
+        return target;
+    }
+
+    @Override
+    public Object getTimer() {
+        return null;
+    }
+
+    @Override
+    public Method getMethod() {
+        return method;
+    }
+
+    @Override
+    public Constructor<?> getConstructor() {
+        return null;
+    }
+
+    @Override
+    public Object[] getParameters() {
+        return parameters;
+    }
+
+    @Override
+    public void setParameters(Object[] parameters) {
+        this.parameters = parameters;
+    }
+
+    @Override
+    public Map<String, Object> getContextData() {
+        return contextData;
+    }
+
+    @Override
+    public Object proceed() throws Exception {
+
+        try {
+            method.setAccessible(true);
+
+            return method.invoke(target, parameters);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+
+            throw e;
+        }
+    }
+}
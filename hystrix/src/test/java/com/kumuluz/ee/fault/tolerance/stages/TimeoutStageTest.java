@@ -0,0 +1,140 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.stages;
+
+import com.kumuluz.ee.fault.tolerance.interfaces.ExecutionStage;
+import com.kumuluz.ee.fault.tolerance.models.ExecutionMetadata;
+import com.kumuluz.ee.fault.tolerance.utils.HashedWheelTimer;
+import org.eclipse.microprofile.faulttolerance.exceptions.TimeoutException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests timeouts of invocations executed on the calling thread.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+public class TimeoutStageTest {
+
+    private static final String TIMER_NAME = "timeout-test-timer";
+
+    private HashedWheelTimer timer;
+
+    @BeforeMethod
+    public void setUp() {
+        timer = new HashedWheelTimer(TIMER_NAME, 1, TimeUnit.MILLISECONDS, 64);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        timer.stop();
+    }
+
+    @Test
+    public void returnsResultWithinTimeout() throws Exception {
+
+        TimeoutStage stage = createStage(true, 1000, (ic, rc) -> "ok");
+
+        Assert.assertEquals(execute(stage), "ok");
+    }
+
+    @Test
+    public void interruptsTimedOutInvocation() throws Exception {
+
+        TimeoutStage stage = createStage(true, 20, (ic, rc) -> {
+            Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+            return "ok";
+        });
+
+        long start = System.nanoTime();
+
+        try {
+            execute(stage);
+            Assert.fail("Execution should time out.");
+        } catch (TimeoutException e) {
+            Assert.assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        }
+
+        Assert.assertFalse(Thread.interrupted(), "Interrupt should not leak to the caller.");
+    }
+
+    @Test
+    public void failsInvocationCompletedAfterTimeout() throws Exception {
+
+        TimeoutStage stage = createStage(true, 10, (ic, rc) -> {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(50);
+
+            // ignores the interrupt
+            while (System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+
+            return "ok";
+        });
+
+        try {
+            execute(stage);
+            Assert.fail("Execution should time out.");
+        } catch (TimeoutException ignored) {
+        }
+
+        Assert.assertFalse(Thread.interrupted(), "Interrupt should not leak to the caller.");
+    }
+
+    @Test
+    public void disabledTimeoutIsNotScheduled() throws Exception {
+
+        TimeoutStage stage = createStage(false, 1, (ic, rc) -> {
+            Thread.sleep(30);
+            return "ok";
+        });
+
+        Assert.assertEquals(execute(stage), "ok");
+        Assert.assertTrue(Thread.getAllStackTraces().keySet().stream()
+                .noneMatch(thread -> thread.getName().equals(TIMER_NAME)), "Timer should not be started.");
+    }
+
+    private static Object execute(TimeoutStage stage) throws Exception {
+        return stage.execute(new TestInvocationContext(new Service(), "call"),
+                TestInvocationContext.activeRequestContext());
+    }
+
+    private TimeoutStage createStage(boolean timeoutEnabled, long timeoutInMillis, ExecutionStage next)
+            throws Exception {
+
+        ExecutionMetadata metadata = new ExecutionMetadata(Service.class, Service.class.getMethod("call"),
+                "Service-call", "Service");
+
+        return new TimeoutStage(next, timer, () -> timeoutEnabled, () -> timeoutInMillis, metadata);
+    }
+
+    public static class Service {
+
+        public String call() {
+            return "ok";
+        }
+    }
+}
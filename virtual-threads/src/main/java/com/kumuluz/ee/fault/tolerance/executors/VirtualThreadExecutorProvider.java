@@ -0,0 +1,58 @@
+/*
+ *  Copyright (c) 2014-2017 Kumuluz and/or its affiliates
+ *  and other contributors as indicated by the @author tags and
+ *  the contributor list.
+ *
+ *  Licensed under the MIT License (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  https://opensource.org/licenses/MIT
+ *
+ *  The software is provided "AS IS", WITHOUT WARRANTY OF ANY KIND, express or
+ *  implied, including but not limited to the warranties of merchantability,
+ *  fitness for a particular purpose and noninfringement. in no event shall the
+ *  authors or copyright holders be liable for any claim, damages or other
+ *  liability, whether in an action of contract, tort or otherwise, arising from,
+ *  out of or in connection with the software or the use or other dealings in the
+ *  software. See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.kumuluz.ee.fault.tolerance.executors;
+
+import com.kumuluz.ee.fault.tolerance.interfaces.AsyncExecutorProvider;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Executes asynchronous methods on virtual threads, one per execution. Blocked executions release their carrier
+ * thread, so the number of concurrent executions is limited only by the bulkhead.
+ *
+ * @author Urban Malc
+ * @since 3.0.0
+ */
+@ApplicationScoped
+public class VirtualThreadExecutorProvider implements AsyncExecutorProvider {
+
+    private static final Logger log = Logger.getLogger(VirtualThreadExecutorProvider.class.getName());
+
+    private final ExecutorService executor = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("kumuluzee-fault-tolerance-virtual-", 0).factory());
+
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    @PreDestroy
+    private void destroy() {
+        log.finest("Shutting down virtual thread executor.");
+
+        executor.shutdown();
+    }
+}